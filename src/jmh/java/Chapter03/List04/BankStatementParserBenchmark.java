@@ -0,0 +1,76 @@
+package Chapter03.List04;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.StringReader;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Parsing throughput. Whole-statement benchmarks report statements per second;
+// divide by rows for lines per second. Run with -prof gc for the allocation rate.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 10, time = 2)
+@Fork(value = 3, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class BankStatementParserBenchmark {
+    // Every line is held as a String and the statement again as one joined String, about
+    // 130 bytes a row, so 50M rows would not fit the heap; sizes stop at 10M
+    @Param({"1000", "100000", "1000000", "10000000"})
+    private int rows;
+
+    private final BankStatementCSVParser parser = new BankStatementCSVParser();
+    private List<String> lines;
+    private String statement;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        lines = StatementGenerator.lines(rows);
+        statement = String.join("\n", lines);
+    }
+
+    @Benchmark
+    public BankTransaction parseFrom() {
+        final String line = lines.get(next);
+        next = next + 1 == rows ? 0 : next + 1;
+        return parser.parseFrom(line);
+    }
+
+    @Benchmark
+    public List<BankTransaction> parseLinesFrom() {
+        return parser.parseLinesFrom(lines);
+    }
+
+    @Benchmark
+    public TransactionStore parseInto() {
+        final CSVTokenizer tokenizer = new CSVTokenizer();
+        final TransactionStore store = new TransactionStore(rows);
+        int from = 0;
+        while (from < statement.length()) {
+            int to = statement.indexOf('\n', from);
+            if (to < 0) {
+                to = statement.length();
+            }
+            parser.parseInto(statement, from, to, tokenizer, store);
+            from = to + 1;
+        }
+        return store;
+    }
+
+    @Benchmark
+    public TransactionStore parseValidated() throws Exception {
+        return parser.parseValidated(new StringReader(statement), new Notification(100));
+    }
+}
@@ -0,0 +1,118 @@
+package Chapter03.List04;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.time.Month;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Query throughput over a store that is built once per trial. Indexes are built
+// lazily by the first query during warmup, so measurements show steady-state cost.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 10, time = 2)
+@Fork(value = 3, jvmArgsAppend = {"-Xms6g", "-Xmx6g"})
+@State(Scope.Benchmark)
+public class BankStatementProcessorBenchmark {
+    @Param({"1000", "100000", "1000000", "50000000"})
+    private int rows;
+
+    // With rollups the month and category totals are lookups rather than scans
+    @Param({"false", "true"})
+    private boolean withRollups;
+
+    private BankStatementProcessor processor;
+    private BankTransactionFilter groceriesInFebruary;
+    private BankTransactionFilter largeCredits;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        processor = new BankStatementProcessor(StatementGenerator.store(rows), withRollups);
+        groceriesInFebruary = new CategoryFilter("Tesco").and(new MonthFilter(Month.FEBRUARY));
+        largeCredits = AmountRangeFilter.atLeast(400_000);
+    }
+
+    @Benchmark
+    public double calculateTotalAmount() {
+        return processor.calculateTotalAmount();
+    }
+
+    @Benchmark
+    public double calculateTotalInMonth() {
+        return processor.calculateTotalInMonth(Month.FEBRUARY);
+    }
+
+    @Benchmark
+    public double calculateTotalForCategory() {
+        return processor.calculateTotalForCategory("Tesco");
+    }
+
+    @Benchmark
+    public double calculateTotalForCategoryInMonth() {
+        return processor.calculateTotalForCategoryInMonth("Tesco", YearMonth.of(2017, Month.FEBRUARY));
+    }
+
+    @Benchmark
+    public double calculateTotalBetween() {
+        return processor.calculateTotalBetween(LocalDate.of(2016, 3, 1), LocalDate.of(2016, 5, 31));
+    }
+
+    @Benchmark
+    public int countTransactionsInAmountRange() {
+        return processor.countTransactionsInAmountRange(-1_000, 1_000);
+    }
+
+    @Benchmark
+    public int countTransactions() {
+        return processor.countTransactions(groceriesInFebruary);
+    }
+
+    @Benchmark
+    public List<BankTransaction> findTransactions() {
+        return processor.findTransactions(largeCredits);
+    }
+
+    @Benchmark
+    public List<BankTransaction> findTransactionsInMonth() {
+        return processor.findTransactionsInMonth(YearMonth.of(2017, Month.FEBRUARY));
+    }
+
+    @Benchmark
+    public double summarizeTransactions() {
+        return processor.summarizeTransactions((accumulator, bankTransaction) ->
+                bankTransaction.getAmount() < 0 ? accumulator + bankTransaction.getAmount() : accumulator);
+    }
+
+    @Benchmark
+    public long summarizeTransactionsInMinorUnits() {
+        return processor.summarizeTransactionsInMinorUnits((accumulator, bankTransaction) ->
+                accumulator + bankTransaction.getAmountInMinorUnits());
+    }
+
+    // The analyzer's four totals in one scan of the columns
+    @Benchmark
+    public long[] sumInMinorUnits() {
+        return processor.sumInMinorUnits(RowValue.AMOUNT, RowValue.amountInMonth(Month.JANUARY),
+                RowValue.amountInMonth(Month.FEBRUARY), RowValue.amountForCategory("salary"));
+    }
+
+    @Benchmark
+    public long[] summarizeTransactionsInParallel() {
+        return processor.summarizeTransactionsInParallel(MergeableBankTransactionSummarizer.summingMinorUnits(
+                (accumulator, bankTransaction) -> accumulator + bankTransaction.getAmountInMinorUnits()));
+    }
+}
@@ -0,0 +1,120 @@
+package Chapter03.List04;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Compares a JMH CSV result (-rf csv) against the committed baseline and exits
+// with status 1 when any benchmark regressed, or has no baseline entry to compare against:
+//
+//   java -cp target/benchmarks.jar Chapter03.List04.BenchmarkBaseline baseline.csv result.csv [tolerance]
+//
+// Throughput regresses when it drops; normalized allocation (gc.alloc.rate.norm,
+// bytes per operation) regresses when it grows. Other profiler metrics are ignored.
+// A change counts only when it exceeds the tolerance and the two 99.9% confidence
+// intervals do not overlap, i.e. the new score lies outside baseline +/- (baseline
+// error + result error), so noisy benchmarks are not reported as regressions.
+// A baseline of zero allocation fails once a run allocates more than a byte per operation.
+public final class BenchmarkBaseline {
+    private static final double DEFAULT_TOLERANCE = 0.10;
+    private static final String ALLOCATION_METRIC = "gc.alloc.rate.norm";
+    // Noise in gc.alloc.rate.norm for allocation-free code is well below this
+    private static final double ALLOCATION_SLACK_BYTES = 1.0;
+
+    private static final int BENCHMARK_COLUMN = 0;
+    private static final int MODE_COLUMN = 1;
+    private static final int SCORE_COLUMN = 4;
+    private static final int ERROR_COLUMN = 5;
+    private static final int FIRST_PARAM_COLUMN = 7;
+
+    private BenchmarkBaseline() {
+    }
+
+    public static void main(final String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: BenchmarkBaseline <baseline.csv> <result.csv> [tolerance]");
+            System.exit(2);
+        }
+        final double tolerance = args.length > 2 ? Double.parseDouble(args[2]) : DEFAULT_TOLERANCE;
+        final Map<String, Score> baseline = readScores(Paths.get(args[0]));
+        final Map<String, Score> result = readScores(Paths.get(args[1]));
+
+        int regressions = 0;
+        int missing = 0;
+        for (final Map.Entry<String, Score> entry : result.entrySet()) {
+            final Score expected = baseline.get(entry.getKey());
+            final Score actual = entry.getValue();
+            final boolean higherIsBetter = !entry.getKey().contains(ALLOCATION_METRIC);
+            if (expected == null || (expected.value == 0 && higherIsBetter)) {
+                missing++;
+                System.out.printf("%-10s %8s  %s%n", "MISSING", "", entry.getKey());
+                continue;
+            }
+            final boolean regressed;
+            final double change;
+            if (expected.value == 0) {
+                regressed = actual.value - actual.error > ALLOCATION_SLACK_BYTES;
+                change = regressed ? Double.POSITIVE_INFINITY : 0;
+            } else {
+                change = (actual.value - expected.value) / expected.value;
+                final double margin = expected.error + actual.error;
+                regressed = higherIsBetter ?
+                        change < -tolerance && actual.value < expected.value - margin :
+                        change > tolerance && actual.value > expected.value + margin;
+            }
+            if (regressed) {
+                regressions++;
+            }
+            System.out.printf("%-10s %+7.1f%% (error %5.1f%%)  %s%n", regressed ? "REGRESSED" : "ok", change * 100,
+                    expected.value == 0 ? 0 : 100 * (expected.error + actual.error) / expected.value, entry.getKey());
+        }
+        System.out.println(regressions + " regression(s) beyond " + Math.round(tolerance * 100) + "%, "
+                + missing + " result(s) without a baseline");
+        System.exit(regressions == 0 && missing == 0 ? 0 : 1);
+    }
+
+    // Keyed by benchmark name plus parameter values, e.g. "...parseFrom rows=1000"
+    private static Map<String, Score> readScores(final Path csv) throws IOException {
+        final List<String> lines = Files.readAllLines(csv);
+        final CSVTokenizer tokenizer = new CSVTokenizer();
+        tokenizer.tokenize(lines.get(0));
+        final String[] header = new String[tokenizer.fieldCount()];
+        for (int i = 0; i < header.length; i++) {
+            header[i] = tokenizer.field(lines.get(0), i);
+        }
+
+        final Map<String, Score> scores = new LinkedHashMap<>();
+        for (final String line : lines.subList(1, lines.size())) {
+            tokenizer.tokenize(line);
+            final String benchmark = tokenizer.field(line, BENCHMARK_COLUMN);
+            final boolean primary = "thrpt".equals(tokenizer.field(line, MODE_COLUMN)) && !benchmark.contains(":");
+            if (!primary && !benchmark.endsWith(ALLOCATION_METRIC)) {
+                continue;
+            }
+            final StringBuilder key = new StringBuilder(benchmark);
+            for (int i = FIRST_PARAM_COLUMN; i < tokenizer.fieldCount() && i < header.length; i++) {
+                key.append(' ').append(header[i].replace("Param: ", "")).append('=').append(tokenizer.field(line, i));
+            }
+            final double error = Double.parseDouble(tokenizer.field(line, ERROR_COLUMN));
+            // a single sample has no interval; JMH writes NaN
+            scores.put(key.toString(), new Score(Double.parseDouble(tokenizer.field(line, SCORE_COLUMN)),
+                    Double.isNaN(error) ? 0 : error));
+        }
+        return scores;
+    }
+
+    private static final class Score {
+        final double value;
+        // half-width of the 99.9% confidence interval
+        final double error;
+
+        Score(final double value, final double error) {
+            this.value = value;
+            this.error = error;
+        }
+    }
+}
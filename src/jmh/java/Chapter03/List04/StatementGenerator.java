@@ -0,0 +1,65 @@
+package Chapter03.List04;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+// Deterministic synthetic statements for the benchmarks: rows are in date order,
+// spread over a few years, with a realistic mix of a small number of merchants.
+final class StatementGenerator {
+    private static final String[] DESCRIPTIONS = {
+            "Tesco", "Salary", "Deliveroo", "Rent", "Cinema", "Sainsbury's", "Amazon", "Uber",
+            "Netflix", "Gym", "Water Bill", "Electricity", "\"Pub, The Crown\"", "Coffee", "Train", "Refund"
+    };
+    private static final int FIRST_EPOCH_DAY = EpochDays.of(2015, 1, 1);
+    private static final int DAYS = 5 * 365;
+    private static final long SEED = 42;
+
+    private StatementGenerator() {
+    }
+
+    static List<String> lines(final int rows) {
+        final SplittableRandom random = new SplittableRandom(SEED);
+        final List<String> lines = new ArrayList<>(rows);
+        final StringBuilder line = new StringBuilder(48);
+        for (int row = 0; row < rows; row++) {
+            final int epochDay = FIRST_EPOCH_DAY + (int) ((long) row * DAYS / rows);
+            line.setLength(0);
+            appendTwoDigits(line, EpochDays.dayOfMonth(epochDay)).append('-');
+            appendTwoDigits(line, EpochDays.month(epochDay)).append('-');
+            line.append(EpochDays.year(epochDay)).append(',');
+            final long amount = amount(random);
+            if (amount < 0) {
+                line.append('-');
+            }
+            line.append(Math.abs(amount) / 100).append('.');
+            appendTwoDigits(line, (int) (Math.abs(amount) % 100)).append(',');
+            line.append(DESCRIPTIONS[random.nextInt(DESCRIPTIONS.length)]);
+            lines.add(line.toString());
+        }
+        return lines;
+    }
+
+    static TransactionStore store(final int rows) {
+        final SplittableRandom random = new SplittableRandom(SEED);
+        final TransactionStore store = new TransactionStore(rows);
+        for (int row = 0; row < rows; row++) {
+            final int epochDay = FIRST_EPOCH_DAY + (int) ((long) row * DAYS / rows);
+            final long amount = amount(random);
+            store.add(epochDay, amount, DESCRIPTIONS[random.nextInt(DESCRIPTIONS.length)]);
+        }
+        return store;
+    }
+
+    // Mostly small debits, with the occasional large credit
+    private static long amount(final SplittableRandom random) {
+        return random.nextInt(10) == 0 ? random.nextLong(100_000, 500_000) : -random.nextLong(100, 20_000);
+    }
+
+    private static StringBuilder appendTwoDigits(final StringBuilder builder, final int value) {
+        if (value < 10) {
+            builder.append('0');
+        }
+        return builder.append(value);
+    }
+}
@@ -0,0 +1,139 @@
+package Chapter03.List04;
+
+import java.util.Arrays;
+
+// Secondary index holding the row ids of a store sorted by amount, so range
+// queries on the amount are two binary searches instead of a scan.
+public class AmountIndex {
+    private final int[] rows;
+    private final long[] amounts;
+
+    private AmountIndex(final int[] rows, final long[] amounts) {
+        this.rows = rows;
+        this.amounts = amounts;
+    }
+
+    public static AmountIndex of(final TransactionStore store) {
+        return of(store, 0);
+    }
+
+    private static AmountIndex of(final TransactionStore store, final int fromRow) {
+        final int size = store.size() - fromRow;
+        int[] rows = new int[size];
+        int[] buffer = new int[size];
+        final long[] keys = new long[size];
+        for (int i = 0; i < size; i++) {
+            rows[i] = i;
+            keys[i] = store.amount(fromRow + i);
+        }
+
+        // bottom-up merge sort of row ids by amount; stable, so ties stay in row order
+        for (int width = 1; width < size; width *= 2) {
+            for (int from = 0; from < size; from += 2 * width) {
+                merge(keys, rows, buffer, from, Math.min(from + width, size), Math.min(from + 2 * width, size));
+            }
+            final int[] swap = rows;
+            rows = buffer;
+            buffer = swap;
+        }
+
+        final long[] amounts = new long[size];
+        for (int i = 0; i < size; i++) {
+            amounts[i] = keys[rows[i]];
+            rows[i] += fromRow;
+        }
+        return new AmountIndex(rows, amounts);
+    }
+
+    // Index over this one plus the rows added to the store from firstNewRow onwards.
+    // Only the new batch is sorted; it is then merged in one sequential pass.
+    public AmountIndex append(final TransactionStore store, final int firstNewRow) {
+        if (firstNewRow >= store.size()) {
+            return this;
+        }
+        final AmountIndex batch = of(store, firstNewRow);
+        final int size = rows.length + batch.rows.length;
+        final int[] mergedRows = new int[size];
+        final long[] mergedAmounts = new long[size];
+        int i = 0;
+        int j = 0;
+        for (int k = 0; k < size; k++) {
+            if (j >= batch.rows.length || (i < rows.length && amounts[i] <= batch.amounts[j])) {
+                mergedRows[k] = rows[i];
+                mergedAmounts[k] = amounts[i++];
+            } else {
+                mergedRows[k] = batch.rows[j];
+                mergedAmounts[k] = batch.amounts[j++];
+            }
+        }
+        return new AmountIndex(mergedRows, mergedAmounts);
+    }
+
+    private static void merge(final long[] keys, final int[] source, final int[] target,
+                              final int from, final int middle, final int to) {
+        int left = from;
+        int right = middle;
+        for (int i = from; i < to; i++) {
+            if (left < middle && (right >= to || keys[source[left]] <= keys[source[right]])) {
+                target[i] = source[left++];
+            } else {
+                target[i] = source[right++];
+            }
+        }
+    }
+
+    public int size() {
+        return rows.length;
+    }
+
+    // First position whose amount is >= the given amount
+    public int lowerBound(final long amount) {
+        int low = 0;
+        int high = amounts.length;
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+            if (amounts[middle] < amount) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    // First position whose amount is > the given amount
+    public int upperBound(final long amount) {
+        return amount == Long.MAX_VALUE ? amounts.length : lowerBound(amount + 1);
+    }
+
+    public int rowAt(final int position) {
+        return rows[position];
+    }
+
+    public long amountAt(final int position) {
+        return amounts[position];
+    }
+
+    // Bounds are inclusive and in minor units
+    public int countBetween(final long min, final long max) {
+        return min > max ? 0 : upperBound(max) - lowerBound(min);
+    }
+
+    public int countAtLeast(final long min) {
+        return amounts.length - lowerBound(min);
+    }
+
+    public int countAtMost(final long max) {
+        return upperBound(max);
+    }
+
+    // Row ids with an amount in [min, max], in statement order
+    public int[] rowsBetween(final long min, final long max) {
+        if (min > max) {
+            return new int[0];
+        }
+        final int[] result = Arrays.copyOfRange(rows, lowerBound(min), upperBound(max));
+        Arrays.sort(result);
+        return result;
+    }
+}
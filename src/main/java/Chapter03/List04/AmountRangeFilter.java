@@ -0,0 +1,50 @@
+package Chapter03.List04;
+
+// A filter that declares the amount range it accepts, so the processor can
+// answer it from the amount index instead of testing every row.
+// Bounds are inclusive and in minor units.
+public class AmountRangeFilter implements ColumnFilter {
+    private final long min;
+    private final long max;
+
+    public AmountRangeFilter(final long min, final long max) {
+        this.min = min;
+        this.max = max;
+    }
+
+    public static AmountRangeFilter atLeast(final long min) {
+        return new AmountRangeFilter(min, Long.MAX_VALUE);
+    }
+
+    public static AmountRangeFilter atMost(final long max) {
+        return new AmountRangeFilter(Long.MIN_VALUE, max);
+    }
+
+    public static AmountRangeFilter between(final long min, final long max) {
+        return new AmountRangeFilter(min, max);
+    }
+
+    public long getMin() {
+        return min;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    @Override
+    public boolean test(final BankTransaction bankTransaction) {
+        final long amount = bankTransaction.getAmountInMinorUnits();
+        return amount >= min && amount <= max;
+    }
+
+    @Override
+    public TransactionView.RowPredicate bind(final TransactionStore store) {
+        return row -> store.amount(row) >= min && store.amount(row) <= max;
+    }
+
+    @Override
+    public double estimateSelectivity(final TransactionStatistics statistics) {
+        return statistics.amountRangeSelectivity(min, max);
+    }
+}
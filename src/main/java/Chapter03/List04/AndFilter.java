@@ -0,0 +1,59 @@
+package Chapter03.List04;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// Matches when every filter matches; nested conjunctions are flattened
+public class AndFilter implements BankTransactionFilter {
+    private final List<BankTransactionFilter> filters;
+
+    private AndFilter(final List<BankTransactionFilter> filters) {
+        this.filters = Collections.unmodifiableList(filters);
+    }
+
+    public static AndFilter of(final BankTransactionFilter... filters) {
+        final List<BankTransactionFilter> flattened = new ArrayList<>();
+        for (final BankTransactionFilter filter : filters) {
+            if (filter instanceof AndFilter) {
+                flattened.addAll(((AndFilter) filter).filters);
+            } else {
+                flattened.add(filter);
+            }
+        }
+        return new AndFilter(flattened);
+    }
+
+    public List<BankTransactionFilter> getFilters() {
+        return filters;
+    }
+
+    @Override
+    public boolean test(final BankTransaction bankTransaction) {
+        for (final BankTransactionFilter filter : filters) {
+            if (!filter.test(bankTransaction)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Assumes the filters are independent
+    @Override
+    public double estimateSelectivity(final TransactionStatistics statistics) {
+        double selectivity = 1.0;
+        for (final BankTransactionFilter filter : filters) {
+            selectivity *= filter.estimateSelectivity(statistics);
+        }
+        return selectivity;
+    }
+
+    @Override
+    public double cost() {
+        double cost = 0;
+        for (final BankTransactionFilter filter : filters) {
+            cost += filter.cost();
+        }
+        return cost;
+    }
+}
@@ -1,29 +1,295 @@
 package Chapter03.List04;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.file.Path;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.List;
 
 public class BankStatementCSVParser implements BankStatementParser {
     public static final DateTimeFormatter DATE_PATTERN = DateTimeFormatter.ofPattern("dd-MM-yyyy");
+    // Returned by tryParseMinorUnits for malformed or out-of-range amounts
+    public static final long INVALID_AMOUNT = Long.MIN_VALUE;
+
+    private static final int DATE_COLUMN = 0;
+    private static final int AMOUNT_COLUMN = 1;
+    private static final int DESCRIPTION_COLUMN = 2;
+
+    // Digits that can be scaled to minor units without overflowing a long
+    private static final int MAX_FAST_DIGITS = 16;
+    // A long has at most 19 integer digits; anything longer cannot be in range
+    private static final int MAX_INTEGER_DIGITS = 19;
+    private static final int MAX_EXPONENT_DIGITS = 9;
+    // INVALID_AMOUNT itself is excluded from the valid range
+    private static final BigDecimal MIN_MINOR_UNITS = BigDecimal.valueOf(Long.MIN_VALUE);
+    private static final BigDecimal MAX_MINOR_UNITS = BigDecimal.valueOf(Long.MAX_VALUE);
+
+    private final ThreadLocal<CSVTokenizer> tokenizers = ThreadLocal.withInitial(CSVTokenizer::new);
+    private final DateDecoder dateDecoder;
+
+    public BankStatementCSVParser() {
+        this(new DateDecoder());
+    }
+
+    // Dates that are not dd-MM-yyyy are tried against the fallback pattern
+    public BankStatementCSVParser(final DateTimeFormatter fallbackDatePattern) {
+        this(new DateDecoder(fallbackDatePattern));
+    }
+
+    public BankStatementCSVParser(final DateDecoder dateDecoder) {
+        this.dateDecoder = dateDecoder;
+    }
+
+    @Override
+    public String configuration() {
+        return getClass().getName() + "[" + dateDecoder + "]";
+    }
 
     public BankTransaction parseFrom(final String line) {
-        final String[] columns = line.split(",");
+        return parseFrom(line, tokenizers.get());
+    }
+
+    public BankTransaction parseFrom(final CharSequence line, final CSVTokenizer tokenizer) {
+        return parseFrom(line, 0, line.length(), tokenizer);
+    }
+
+    // Parses the line held in text[from, to) without copying it out first
+    public BankTransaction parseFrom(final CharSequence text, final int from, final int to,
+                                     final CSVTokenizer tokenizer) {
+        if (tokenizer.tokenize(text, from, to) <= DESCRIPTION_COLUMN) {
+            throw new IllegalArgumentException("Expected 3 columns but got " + tokenizer.fieldCount() + ": "
+                    + text.subSequence(from, to));
+        }
+
+        final LocalDate date = parseDate(text, tokenizer.start(DATE_COLUMN), tokenizer.end(DATE_COLUMN));
+        final long amount = parseMinorUnits(text, tokenizer.start(AMOUNT_COLUMN), tokenizer.end(AMOUNT_COLUMN));
+        final String description = tokenizer.field(text, DESCRIPTION_COLUMN);
+
+        return BankTransaction.ofMinorUnits(date, amount, description);
+    }
+
+    // Parses text[from, to) straight into the columns of a store. Descriptions already
+    // in the store's dictionary are matched in place, so no String is allocated for them
+    public void parseInto(final CharSequence text, final int from, final int to,
+                          final CSVTokenizer tokenizer, final TransactionStore store) {
+        if (tokenizer.tokenize(text, from, to) <= DESCRIPTION_COLUMN) {
+            throw new IllegalArgumentException("Expected 3 columns but got " + tokenizer.fieldCount() + ": "
+                    + text.subSequence(from, to));
+        }
+
+        final int epochDay = parseEpochDay(text, tokenizer.start(DATE_COLUMN), tokenizer.end(DATE_COLUMN));
+        final long amount = parseMinorUnits(text, tokenizer.start(AMOUNT_COLUMN), tokenizer.end(AMOUNT_COLUMN));
+        if (tokenizer.isEscaped(DESCRIPTION_COLUMN)) {
+            store.add(epochDay, amount, tokenizer.field(text, DESCRIPTION_COLUMN));
+        } else {
+            store.add(epochDay, amount, text, tokenizer.start(DESCRIPTION_COLUMN), tokenizer.end(DESCRIPTION_COLUMN));
+        }
+    }
+
+    // Validating variant of parseInto: never throws for bad input. A malformed row is
+    // reported to the notification with its line number and skipped. Well-formed rows
+    // go through exactly the same decoding as parseInto
+    public boolean parseInto(final CharSequence text, final int from, final int to,
+                             final CSVTokenizer tokenizer, final TransactionStore store,
+                             final long lineNumber, final Notification notification) {
+        if (tokenizer.tokenize(text, from, to) <= DESCRIPTION_COLUMN) {
+            if (notification.acceptsMoreErrors()) {
+                notification.addError("Line " + lineNumber + ": expected 3 columns but got " + tokenizer.fieldCount());
+            } else {
+                notification.countError();
+            }
+            return false;
+        }
+
+        final int epochDay = dateDecoder.decodeEpochDay(text, tokenizer.start(DATE_COLUMN), tokenizer.end(DATE_COLUMN));
+        if (epochDay == DateDecoder.INVALID) {
+            reportInvalid(notification, lineNumber, "date", text, tokenizer.start(DATE_COLUMN),
+                    tokenizer.end(DATE_COLUMN));
+            return false;
+        }
+        final long amount = tryParseMinorUnits(text, tokenizer.start(AMOUNT_COLUMN), tokenizer.end(AMOUNT_COLUMN));
+        if (amount == INVALID_AMOUNT) {
+            reportInvalid(notification, lineNumber, "amount", text, tokenizer.start(AMOUNT_COLUMN),
+                    tokenizer.end(AMOUNT_COLUMN));
+            return false;
+        }
+
+        if (tokenizer.isEscaped(DESCRIPTION_COLUMN)) {
+            store.add(epochDay, amount, tokenizer.field(text, DESCRIPTION_COLUMN));
+        } else {
+            store.add(epochDay, amount, text, tokenizer.start(DESCRIPTION_COLUMN), tokenizer.end(DESCRIPTION_COLUMN));
+        }
+        return true;
+    }
+
+    // Once the notification keeps no more messages the error is only counted, so a feed
+    // of broken lines does not build a message string per line
+    private static void reportInvalid(final Notification notification, final long lineNumber, final String field,
+                                      final CharSequence text, final int start, final int end) {
+        if (notification.acceptsMoreErrors()) {
+            notification.addError("Line " + lineNumber + ": invalid " + field + " '" + text.subSequence(start, end) + "'");
+        } else {
+            notification.countError();
+        }
+    }
 
-        final LocalDate date = LocalDate.parse(columns[0], DATE_PATTERN);
-        final double amount = Double.parseDouble(columns[1]);
-        final String description = columns[2];
+    // Reads a whole statement, keeping the valid rows and reporting the rest to the notification
+    public TransactionStore parseValidated(final Reader reader, final Notification notification) throws IOException {
+        final BufferedReader bufferedReader = reader instanceof BufferedReader ?
+                (BufferedReader) reader : new BufferedReader(reader);
+        final CSVTokenizer tokenizer = tokenizers.get();
+        final TransactionStore store = new TransactionStore();
+        long lineNumber = 0;
+        String line;
+        while ((line = bufferedReader.readLine()) != null) {
+            lineNumber++;
+            parseInto(line, 0, line.length(), tokenizer, store, lineNumber, notification);
+        }
+        return store;
+    }
 
-        return new BankTransaction(date, amount, description);
+    public TransactionStore parseValidated(final Path path, final Notification notification) throws IOException {
+        try (BufferedReader reader = CompressedInput.newReader(path)) {
+            return parseValidated(reader, notification);
+        }
     }
 
     public List<BankTransaction> parseLinesFrom(final List<String> lines) {
+        final CSVTokenizer tokenizer = tokenizers.get();
         final List<BankTransaction> bankTransactions = new ArrayList<>();
         for (String line : lines) {
-            bankTransactions.add(parseFrom(line));
+            bankTransactions.add(parseFrom(line, tokenizer));
         }
 
         return bankTransactions;
     }
+
+    private LocalDate parseDate(final CharSequence text, final int start, final int end) {
+        return LocalDate.ofEpochDay(parseEpochDay(text, start, end));
+    }
+
+    private int parseEpochDay(final CharSequence text, final int start, final int end) {
+        final int epochDay = dateDecoder.decodeEpochDay(text, start, end);
+        if (epochDay == DateDecoder.INVALID) {
+            final String date = text.subSequence(start, end).toString();
+            throw new DateTimeParseException("Text '" + date + "' could not be parsed", date, 0);
+        }
+        return epochDay;
+    }
+
+    static long parseMinorUnits(final CharSequence text, final int start, final int end) {
+        final long amount = tryParseMinorUnits(text, start, end);
+        if (amount == INVALID_AMOUNT) {
+            throw new NumberFormatException("Invalid amount: " + text.subSequence(start, end));
+        }
+        return amount;
+    }
+
+    // Fast path for plain decimals with at most two fraction digits, such as -50 or 1250.75.
+    // Anything else (exponents, whitespace, extra precision) is rounded through BigDecimal.
+    // Returns INVALID_AMOUNT instead of throwing
+    static long tryParseMinorUnits(final CharSequence text, final int start, final int end) {
+        int position = start;
+        boolean negative = false;
+        if (position < end && (text.charAt(position) == '-' || text.charAt(position) == '+')) {
+            negative = text.charAt(position) == '-';
+            position++;
+        }
+
+        long units = 0;
+        int fractionDigits = -1;
+        int digits = 0;
+        for (; position < end; position++) {
+            final char c = text.charAt(position);
+            if (c >= '0' && c <= '9' && fractionDigits < BankTransaction.MINOR_UNIT_DIGITS) {
+                units = units * 10 + (c - '0');
+                digits++;
+                if (fractionDigits >= 0) {
+                    fractionDigits++;
+                }
+            } else if (c == '.' && fractionDigits < 0) {
+                fractionDigits = 0;
+            } else {
+                return slowParseMinorUnits(text, start, end);
+            }
+        }
+
+        if (digits == 0 || digits > MAX_FAST_DIGITS) {
+            return slowParseMinorUnits(text, start, end);
+        }
+
+        for (int i = Math.max(fractionDigits, 0); i < BankTransaction.MINOR_UNIT_DIGITS; i++) {
+            units *= 10;
+        }
+        return negative ? -units : units;
+    }
+
+    private static long slowParseMinorUnits(final CharSequence text, final int start, final int end) {
+        final String amount = text.subSequence(start, end).toString().trim();
+        if (!isDecimal(amount)) {
+            return INVALID_AMOUNT;
+        }
+        final BigDecimal minorUnits = new BigDecimal(amount).scaleByPowerOfTen(BankTransaction.MINOR_UNIT_DIGITS);
+        // Checked before rounding so a huge exponent in either direction is never expanded:
+        // 1e999999999 is out of range and 1e-999999999, below a tenth of a minor unit, rounds to 0
+        final int integerDigits = minorUnits.precision() - minorUnits.scale();
+        if (minorUnits.signum() == 0 || integerDigits < 0) {
+            return 0;
+        }
+        if (integerDigits > MAX_INTEGER_DIGITS) {
+            return INVALID_AMOUNT;
+        }
+        final BigDecimal rounded = minorUnits.setScale(0, RoundingMode.HALF_EVEN);
+        if (rounded.compareTo(MIN_MINOR_UNITS) <= 0 || rounded.compareTo(MAX_MINOR_UNITS) > 0) {
+            return INVALID_AMOUNT;
+        }
+        return rounded.longValue();
+    }
+
+    // Same grammar BigDecimal accepts: [sign] digits [. digits] [(e|E) [sign] digits],
+    // with at least one mantissa digit and an exponent that fits in an int
+    private static boolean isDecimal(final String amount) {
+        int position = 0;
+        final int length = amount.length();
+        if (position < length && (amount.charAt(position) == '-' || amount.charAt(position) == '+')) {
+            position++;
+        }
+        int digits = 0;
+        boolean point = false;
+        for (; position < length; position++) {
+            final char c = amount.charAt(position);
+            if (c >= '0' && c <= '9') {
+                digits++;
+            } else if (c == '.' && !point) {
+                point = true;
+            } else {
+                break;
+            }
+        }
+        if (digits == 0) {
+            return false;
+        }
+        if (position == length) {
+            return true;
+        }
+        if (amount.charAt(position) != 'e' && amount.charAt(position) != 'E') {
+            return false;
+        }
+        position++;
+        if (position < length && (amount.charAt(position) == '-' || amount.charAt(position) == '+')) {
+            position++;
+        }
+        final int exponentStart = position;
+        while (position < length && amount.charAt(position) >= '0' && amount.charAt(position) <= '9') {
+            position++;
+        }
+        final int exponentDigits = position - exponentStart;
+        return position == length && exponentDigits > 0 && exponentDigits <= MAX_EXPONENT_DIGITS;
+    }
 }
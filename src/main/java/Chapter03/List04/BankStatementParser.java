@@ -1,8 +1,53 @@
 package Chapter03.List04;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface BankStatementParser {
     BankTransaction parseFrom(String line);
     List<BankTransaction> parseLinesFrom(List<String> lines);
+
+    // Identifies the parser and any settings that change what it produces,
+    // so results cached from one configuration are not reused by another
+    default String configuration() {
+        return getClass().getName();
+    }
+
+    // Streaming variants: transactions are parsed lazily one line at a time,
+    // so the caller never holds the whole file or the whole list in memory.
+    // The returned stream owns the underlying source and must be closed.
+    default Stream<BankTransaction> streamFrom(final Reader reader) {
+        final BufferedReader bufferedReader = reader instanceof BufferedReader ?
+                (BufferedReader) reader : new BufferedReader(reader);
+        return bufferedReader.lines()
+                .map(this::parseFrom)
+                .onClose(() -> {
+                    try {
+                        bufferedReader.close();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+    }
+
+    // gzip-compressed input is decompressed transparently
+    default Stream<BankTransaction> streamFrom(final InputStream inputStream) {
+        try {
+            return streamFrom(new InputStreamReader(CompressedInput.decompress(inputStream), StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    default Stream<BankTransaction> streamFrom(final Path path) throws IOException {
+        return streamFrom(CompressedInput.newReader(path));
+    }
 }
@@ -1,50 +1,480 @@
 package Chapter03.List04;
 
+import java.time.LocalDate;
 import java.time.Month;
-import java.util.ArrayList;
+import java.time.YearMonth;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 public class BankStatementProcessor {
-    private final List<BankTransaction> bankTransactions;
+    // Below this many rows a parallel summary is not worth the task overhead
+    public static final int PARALLEL_THRESHOLD = 1 << 16;
+
+    private final TransactionStore store;
+    // Only built on request; null means month and category queries scan the store
+    private final RollupIndex rollups;
+    // Built on the first query that needs them
+    private AmountIndex amountIndex;
+    private DateIndex dateIndex;
+    private TransactionStatistics statistics;
+    private BitmapIndex bitmapIndex;
 
     public BankStatementProcessor(final List<BankTransaction> bankTransactions) {
-        this.bankTransactions = bankTransactions;
+        this(TransactionStore.of(bankTransactions));
+    }
+
+    // The source is read once and loaded into memory as a columnar store, so later
+    // queries do not reread it. For a one-shot pass in constant memory use summarizeStream
+    public BankStatementProcessor(final Supplier<Stream<BankTransaction>> bankTransactions) {
+        this(TransactionStore.of(bankTransactions));
+    }
+
+    // Runs the summarizers over the stream as it is read, without keeping any transaction;
+    // result i belongs to summarizers[i]. The stream is closed afterwards
+    public static long[] summarizeStream(final Supplier<Stream<BankTransaction>> bankTransactions,
+                                         final BankTransactionMinorUnitsSummarizer... summarizers) {
+        final long[] results = new long[summarizers.length];
+        try (Stream<BankTransaction> stream = bankTransactions.get()) {
+            final Iterator<BankTransaction> iterator = stream.iterator();
+            while (iterator.hasNext()) {
+                final BankTransaction bankTransaction = iterator.next();
+                for (int i = 0; i < summarizers.length; i++) {
+                    results[i] = summarizers[i].summarize(results[i], bankTransaction);
+                }
+            }
+        }
+        return results;
+    }
+
+    public BankStatementProcessor(final TransactionStore store) {
+        this(store, false);
+    }
+
+    public BankStatementProcessor(final TransactionStore store, final boolean withRollups) {
+        this.store = store;
+        this.rollups = withRollups ? RollupIndex.of(store) : null;
+    }
+
+    // Adds a batch of new transactions, updating the rollups, statistics and any
+    // indexes already built from the new rows only. Must not run concurrently with queries.
+    public synchronized void append(final List<BankTransaction> batch) {
+        final int firstNewRow = store.size();
+        for (final BankTransaction bankTransaction : batch) {
+            store.add(bankTransaction);
+        }
+        updateIndexes(firstNewRow);
+    }
+
+    public synchronized void append(final TransactionStore batch) {
+        final int firstNewRow = store.size();
+        store.addAll(batch);
+        updateIndexes(firstNewRow);
+    }
+
+    private void updateIndexes(final int firstNewRow) {
+        for (int row = firstNewRow; row < store.size(); row++) {
+            final int epochDay = store.epochDay(row);
+            final long amount = store.amount(row);
+            final int categoryId = store.categoryId(row);
+            if (rollups != null) {
+                rollups.add(epochDay, amount, categoryId);
+            }
+            if (statistics != null) {
+                statistics.add(epochDay, amount, categoryId);
+            }
+            if (bitmapIndex != null) {
+                bitmapIndex.add(row, epochDay, amount, categoryId);
+            }
+        }
+        if (dateIndex != null) {
+            dateIndex.append(firstNewRow);
+        }
+        if (amountIndex != null) {
+            amountIndex = amountIndex.append(store, firstNewRow);
+        }
     }
 
     public List<BankTransaction> findTransactions(final BankTransactionFilter filter) {
-        final List<BankTransaction> result = new ArrayList<>();
-        for (final BankTransaction bankTransaction : bankTransactions) {
-            if (filter.test(bankTransaction)) {
-                result.add(bankTransaction);
+        return selectTransactions(filter).toList();
+    }
+
+    // Lazy counterpart of findTransactions: nothing is copied until the view is consumed.
+    // Compound filters are planned: indexable ranges use an index and the other
+    // tests are reordered by estimated cost and selectivity
+    public TransactionView selectTransactions(final BankTransactionFilter filter) {
+        return new FilterPlanner(store, getStatistics(), this::amountIndex, this::dateIndex, this::bitmapIndex)
+                .plan(filter);
+    }
+
+    // Filters on month, year, category and sign are counted with bitmap popcounts
+    public int countTransactions(final BankTransactionFilter filter) {
+        return selectTransactions(filter).count();
+    }
+
+    private synchronized BitmapIndex bitmapIndex() {
+        if (bitmapIndex == null) {
+            bitmapIndex = BitmapIndex.of(store);
+        }
+        return bitmapIndex;
+    }
+
+    public synchronized TransactionStatistics getStatistics() {
+        if (statistics == null) {
+            statistics = TransactionStatistics.of(store);
+        }
+        return statistics;
+    }
+
+    public TransactionView transactions() {
+        return TransactionView.allRows(store);
+    }
+
+    public List<BankTransaction> findTransactionsGreaterThanEqual(final int amount) {
+        return findTransactionsInAmountRange(amount * BankTransaction.MINOR_UNITS_PER_UNIT, Long.MAX_VALUE);
+    }
+
+    // Bounds are inclusive and in minor units; answered from the amount index
+    public List<BankTransaction> findTransactionsInAmountRange(final long min, final long max) {
+        return selectTransactionsInAmountRange(min, max).toList();
+    }
+
+    public TransactionView selectTransactionsInAmountRange(final long min, final long max) {
+        return TransactionView.ofRows(store, amountIndex().rowsBetween(min, max));
+    }
+
+    public int countTransactionsInAmountRange(final long min, final long max) {
+        return amountIndex().countBetween(min, max);
+    }
+
+    public int countTransactions(final AmountRangeFilter filter) {
+        return countTransactionsInAmountRange(filter.getMin(), filter.getMax());
+    }
+
+    private synchronized AmountIndex amountIndex() {
+        if (amountIndex == null) {
+            amountIndex = AmountIndex.of(store);
+        }
+        return amountIndex;
+    }
+
+    private synchronized DateIndex dateIndex() {
+        if (dateIndex == null) {
+            dateIndex = DateIndex.of(store);
+        }
+        return dateIndex;
+    }
+
+    // Both dates are inclusive; answered from a contiguous slice of the date index
+    public List<BankTransaction> findTransactionsBetween(final LocalDate from, final LocalDate to) {
+        return selectTransactionsBetween(from, to).toList();
+    }
+
+    public List<BankTransaction> findTransactionsInMonth(final YearMonth yearMonth) {
+        return selectTransactionsBetween(yearMonth.atDay(1), yearMonth.atEndOfMonth()).toList();
+    }
+
+    public TransactionView selectTransactionsBetween(final LocalDate from, final LocalDate to) {
+        final DateIndex index = dateIndex();
+        return TransactionView.dateSlice(store, index,
+                index.lowerBound((int) from.toEpochDay()), index.upperBound((int) to.toEpochDay()));
+    }
+
+    public double calculateTotalBetween(final LocalDate from, final LocalDate to) {
+        return BankTransaction.toAmount(
+                dateIndex().totalBetween((int) from.toEpochDay(), (int) to.toEpochDay()));
+    }
+
+    // Sums every value in a single scan of the primitive columns, with no BankTransaction
+    // built per row; result i belongs to values[i]. Prefer this to the summarizers for totals
+    public long[] sumInMinorUnits(final RowValue... values) {
+        final RowValue[] bound = new RowValue[values.length];
+        for (int i = 0; i < values.length; i++) {
+            bound[i] = values[i].bind(store);
+        }
+        final long[] results = new long[values.length];
+        for (int row = 0; row < store.size(); row++) {
+            for (int i = 0; i < bound.length; i++) {
+                results[i] += bound[i].valueOf(store, row);
             }
         }
-        return result;
+        return results;
     }
 
+    // The summarizers see whole BankTransactions. Each row's object is used only within its
+    // iteration, so once the summarizers are inlined the JIT can usually elide it
     public double summarizeTransactions(final BankTransactionSummarizer summarizer) {
         double result = 0;
-        for (BankTransaction bankTransaction : bankTransactions) {
-            result = summarizer.summarize(result, bankTransaction);
+        for (int row = 0; row < store.size(); row++) {
+            result = summarizer.summarize(result, store.get(row));
+        }
+        return result;
+    }
+
+    public long summarizeTransactionsInMinorUnits(final BankTransactionMinorUnitsSummarizer summarizer) {
+        long result = 0;
+        for (int row = 0; row < store.size(); row++) {
+            result = summarizer.summarize(result, store.get(row));
         }
         return result;
     }
 
+    // Runs all the summarizers in a single scan; result i belongs to summarizers[i]
+    public double[] summarizeTransactions(final BankTransactionSummarizer... summarizers) {
+        final double[] results = new double[summarizers.length];
+        for (int row = 0; row < store.size(); row++) {
+            final BankTransaction bankTransaction = store.get(row);
+            for (int i = 0; i < summarizers.length; i++) {
+                results[i] = summarizers[i].summarize(results[i], bankTransaction);
+            }
+        }
+        return results;
+    }
+
+    public long[] summarizeTransactionsInMinorUnits(final BankTransactionMinorUnitsSummarizer... summarizers) {
+        final long[] results = new long[summarizers.length];
+        for (int row = 0; row < store.size(); row++) {
+            final BankTransaction bankTransaction = store.get(row);
+            for (int i = 0; i < summarizers.length; i++) {
+                results[i] = summarizers[i].summarize(results[i], bankTransaction);
+            }
+        }
+        return results;
+    }
+
+    public <A> A summarizeTransactionsInParallel(final MergeableBankTransactionSummarizer<A> summarizer) {
+        return summarizeTransactionsInParallel(summarizer, ForkJoinPool.commonPool());
+    }
+
+    public <A> A summarizeTransactionsInParallel(final MergeableBankTransactionSummarizer<A> summarizer,
+                                                 final ForkJoinPool pool) {
+        if (store.size() < PARALLEL_THRESHOLD) {
+            return summarizeRows(summarizer, 0, store.size());
+        }
+        // a few partitions per worker so that uneven ones can be stolen
+        final int partitionSize = Math.max(PARALLEL_THRESHOLD / 4, store.size() / (pool.getParallelism() * 4));
+        return pool.invoke(new SummarizeTask<>(summarizer, 0, store.size(), partitionSize));
+    }
+
+    private <A> A summarizeRows(final MergeableBankTransactionSummarizer<A> summarizer,
+                                final int from, final int to) {
+        A accumulator = summarizer.identity();
+        for (int row = from; row < to; row++) {
+            accumulator = summarizer.accumulate(accumulator, store.get(row));
+        }
+        return accumulator;
+    }
+
+    private class SummarizeTask<A> extends RecursiveTask<A> {
+        private static final long serialVersionUID = 1L;
+
+        private final MergeableBankTransactionSummarizer<A> summarizer;
+        private final int from;
+        private final int to;
+        private final int partitionSize;
+
+        SummarizeTask(final MergeableBankTransactionSummarizer<A> summarizer,
+                      final int from, final int to, final int partitionSize) {
+            this.summarizer = summarizer;
+            this.from = from;
+            this.to = to;
+            this.partitionSize = partitionSize;
+        }
+
+        @Override
+        protected A compute() {
+            if (to - from <= partitionSize) {
+                return summarizeRows(summarizer, from, to);
+            }
+            final int middle = (from + to) >>> 1;
+            final SummarizeTask<A> left = new SummarizeTask<>(summarizer, from, middle, partitionSize);
+            final SummarizeTask<A> right = new SummarizeTask<>(summarizer, middle, to, partitionSize);
+            left.fork();
+            final A rightResult = right.compute();
+            return summarizer.combine(left.join(), rightResult);
+        }
+    }
+
+    // Totals are summed exactly in minor units and only converted at the end
     public double calculateTotalAmount() {
-        return summarizeTransactions(((accumulator, bankTransaction) ->
-                accumulator + bankTransaction.getAmount()
-        ));
+        return BankTransaction.toAmount(calculateTotalAmountInMinorUnits());
     }
 
     public double calculateTotalInMonth(final Month month) {
-        return summarizeTransactions(((accumulator, bankTransaction) ->
-                bankTransaction.getDate().getMonth() == month ? accumulator + bankTransaction.getAmount() : accumulator
-        ));
+        return BankTransaction.toAmount(calculateTotalInMonthInMinorUnits(month));
     }
 
     public double calculateTotalForCategory(final String category) {
-        return summarizeTransactions(((accumulator, bankTransaction) ->
-                bankTransaction.getDescription().equalsIgnoreCase(category) ?
-                        accumulator + bankTransaction.getAmount() : accumulator
-        ));
+        return BankTransaction.toAmount(calculateTotalForCategoryInMinorUnits(category));
+    }
+
+    public double calculateTotalInMonth(final YearMonth yearMonth) {
+        return BankTransaction.toAmount(calculateTotalInMonthInMinorUnits(yearMonth));
+    }
+
+    public double calculateTotalForCategoryInMonth(final String category, final YearMonth yearMonth) {
+        return BankTransaction.toAmount(calculateTotalForCategoryInMonthInMinorUnits(category, yearMonth));
+    }
+
+    // The built-in totals use the rollups when present and otherwise scan the primitive columns
+    public long calculateTotalAmountInMinorUnits() {
+        if (rollups != null) {
+            return rollups.total();
+        }
+        long total = 0;
+        for (int row = 0; row < store.size(); row++) {
+            total += store.amount(row);
+        }
+        return total;
+    }
+
+    public long calculateTotalInMonthInMinorUnits(final Month month) {
+        if (rollups != null) {
+            return rollups.totalInMonth(month);
+        }
+        if (store.size() == 0) {
+            return 0;
+        }
+        // one slice per year covered by the statement rather than a full scan
+        final DateIndex index = dateIndex();
+        long total = 0;
+        for (int year = EpochDays.year(index.firstEpochDay()); year <= EpochDays.year(index.lastEpochDay()); year++) {
+            final YearMonth yearMonth = YearMonth.of(year, month);
+            total += index.totalBetween(firstDayOf(yearMonth), lastDayOf(yearMonth));
+        }
+        return total;
+    }
+
+    public long calculateTotalForCategoryInMinorUnits(final String category) {
+        // one dictionary lookup, then an int comparison per row
+        final int categoryId = store.descriptions().findCategory(category);
+        if (categoryId == DescriptionDictionary.NOT_FOUND) {
+            return 0;
+        }
+        if (rollups != null) {
+            return rollups.totalForCategory(categoryId);
+        }
+        long total = 0;
+        for (int row = 0; row < store.size(); row++) {
+            if (store.categoryId(row) == categoryId) {
+                total += store.amount(row);
+            }
+        }
+        return total;
+    }
+
+    public long calculateTotalInMonthInMinorUnits(final YearMonth yearMonth) {
+        if (rollups != null) {
+            return rollups.totalInMonth(yearMonth);
+        }
+        return dateIndex().totalBetween(firstDayOf(yearMonth), lastDayOf(yearMonth));
+    }
+
+    public long calculateTotalForCategoryInMonthInMinorUnits(final String category, final YearMonth yearMonth) {
+        final int categoryId = store.descriptions().findCategory(category);
+        if (categoryId == DescriptionDictionary.NOT_FOUND) {
+            return 0;
+        }
+        if (rollups != null) {
+            return rollups.totalForCategoryInMonth(categoryId, yearMonth);
+        }
+        final DateIndex index = dateIndex();
+        final int end = index.upperBound(lastDayOf(yearMonth));
+        long total = 0;
+        for (int position = index.lowerBound(firstDayOf(yearMonth)); position < end; position++) {
+            final int row = index.rowAt(position);
+            if (store.categoryId(row) == categoryId) {
+                total += store.amount(row);
+            }
+        }
+        return total;
+    }
+
+    public int countTransactionsInMonth(final YearMonth yearMonth) {
+        if (rollups != null) {
+            return rollups.countInMonth(yearMonth);
+        }
+        return dateIndex().countBetween(firstDayOf(yearMonth), lastDayOf(yearMonth));
+    }
+
+    public DailyTimeSeries dailyTimeSeries() {
+        return DailyTimeSeries.of(store);
+    }
+
+    public DailyTimeSeries dailyTimeSeries(final LocalDate from, final LocalDate to) {
+        return DailyTimeSeries.of(store, (int) from.toEpochDay(), (int) to.toEpochDay());
+    }
+
+    // Sums the amount of every group in one pass, e.g. groupBy(GroupKey.month())
+    public GroupedTotals groupBy(final GroupKey groupKey) {
+        return groupBy(groupKey, RowValue.AMOUNT);
+    }
+
+    public GroupedTotals groupBy(final GroupKey groupKey, final RowValue value) {
+        final LongAggregateTable table = new LongAggregateTable();
+        final RowValue boundValue = value.bind(store);
+        for (int row = 0; row < store.size(); row++) {
+            table.add(groupKey.keyOf(store, row), boundValue.valueOf(store, row));
+        }
+        return new GroupedTotals(store, groupKey, table);
+    }
+
+    // Approximate distinct descriptions per calendar month. Each description is hashed
+    // once per dictionary entry rather than once per row
+    public Map<YearMonth, DistinctCounter> countDistinctDescriptionsByMonth(final int precision) {
+        final DescriptionDictionary descriptions = store.descriptions();
+        final long[] hashes = new long[descriptions.size()];
+        for (int id = 0; id < hashes.length; id++) {
+            hashes[id] = DistinctCounter.hash(descriptions.get(id));
+        }
+
+        final Map<Integer, DistinctCounter> byYearMonth = new HashMap<>();
+        int lastYearMonth = Integer.MIN_VALUE;
+        DistinctCounter counter = null;
+        for (int row = 0; row < store.size(); row++) {
+            final int yearMonth = EpochDays.yearMonth(store.epochDay(row));
+            // Statements are mostly in date order, so the month rarely changes between rows
+            if (yearMonth != lastYearMonth) {
+                counter = byYearMonth.computeIfAbsent(yearMonth, key -> new DistinctCounter(precision));
+                lastYearMonth = yearMonth;
+            }
+            counter.addHash(hashes[store.descriptionId(row)]);
+        }
+
+        final Map<YearMonth, DistinctCounter> result = new TreeMap<>();
+        byYearMonth.forEach((yearMonth, distinct) ->
+                result.put(YearMonth.of(Math.floorDiv(yearMonth, 12), Math.floorMod(yearMonth, 12) + 1), distinct));
+        return result;
+    }
+
+    public int countTransactionsForCategory(final String category) {
+        final int categoryId = store.descriptions().findCategory(category);
+        if (categoryId == DescriptionDictionary.NOT_FOUND) {
+            return 0;
+        }
+        if (rollups != null) {
+            return rollups.countForCategory(categoryId);
+        }
+        int count = 0;
+        for (int row = 0; row < store.size(); row++) {
+            if (store.categoryId(row) == categoryId) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static int firstDayOf(final YearMonth yearMonth) {
+        return EpochDays.of(yearMonth.getYear(), yearMonth.getMonthValue(), 1);
+    }
+
+    private static int lastDayOf(final YearMonth yearMonth) {
+        return EpochDays.of(yearMonth.getYear(), yearMonth.getMonthValue(), yearMonth.lengthOfMonth());
     }
 }
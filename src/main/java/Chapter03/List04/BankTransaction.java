@@ -4,22 +4,42 @@ import java.time.LocalDate;
 import java.util.Objects;
 
 public class BankTransaction {
+    // Amounts are kept exactly as a whole number of minor units (cents)
+    public static final int MINOR_UNIT_DIGITS = 2;
+    public static final long MINOR_UNITS_PER_UNIT = 100;
+
     private final LocalDate date;
-    private final double amount;
+    private final long amountInMinorUnits;
     private final String description;
 
     public BankTransaction(LocalDate date, double amount, String description) {
+        this(date, Math.round(amount * MINOR_UNITS_PER_UNIT), description);
+    }
+
+    private BankTransaction(LocalDate date, long amountInMinorUnits, String description) {
         this.date = date;
-        this.amount = amount;
+        this.amountInMinorUnits = amountInMinorUnits;
         this.description = description;
     }
 
+    public static BankTransaction ofMinorUnits(LocalDate date, long amountInMinorUnits, String description) {
+        return new BankTransaction(date, amountInMinorUnits, description);
+    }
+
     public LocalDate getDate() {
         return date;
     }
 
     public double getAmount() {
-        return amount;
+        return toAmount(amountInMinorUnits);
+    }
+
+    public long getAmountInMinorUnits() {
+        return amountInMinorUnits;
+    }
+
+    public static double toAmount(final long amountInMinorUnits) {
+        return (double) amountInMinorUnits / MINOR_UNITS_PER_UNIT;
     }
 
     public String getDescription() {
@@ -30,7 +50,7 @@ public class BankTransaction {
     public String toString() {
         return "BankTransaction{" +
                 "date=" + date +
-                ", amount=" + amount +
+                ", amount=" + getAmount() +
                 ", description='" + description + '\'' +
                 '}';
     }
@@ -40,13 +60,13 @@ public class BankTransaction {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         BankTransaction that = (BankTransaction) o;
-        return Double.compare(that.amount, amount) == 0 &&
+        return amountInMinorUnits == that.amountInMinorUnits &&
                 date.equals(that.date) &&
                 description.equals(that.description);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(date, amount, description);
+        return Objects.hash(date, amountInMinorUnits, description);
     }
 }
@@ -1,34 +1,115 @@
 package Chapter03.List04;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.Month;
-import java.util.List;
 
 public class BankTransactionAnalyzer {
     private static final String RESOURCES = "src/main/resources/";
+    private static final String SNAPSHOT_SUFFIX = ".snapshot";
+
+    // null when snapshots are disabled
+    private final Path snapshotDirectory;
+
+    public BankTransactionAnalyzer() {
+        this(null);
+    }
+
+    // Caches each parsed statement as a binary snapshot in the given directory,
+    // which should live outside the source tree (for example under target/)
+    public BankTransactionAnalyzer(final Path snapshotDirectory) {
+        this.snapshotDirectory = snapshotDirectory;
+    }
 
     public void analyze(final String fileName, final BankStatementParser bankStatementParser) throws IOException {
         final Path path = Paths.get(RESOURCES + fileName);
-        final List<String> lines = Files.readAllLines(path);
 
         // No longer need to know parsing details now
-        final List<BankTransaction> bankTransactions = bankStatementParser.parseLinesFrom(lines);
-        final BankStatementProcessor bankStatementProcessor = new BankStatementProcessor(bankTransactions);
+        final BankStatementProcessor bankStatementProcessor = new BankStatementProcessor(
+                loadStatement(path, bankStatementParser, snapshotDirectory));
 
         collectSummary(bankStatementProcessor);
     }
 
+    // For multi-gigabyte exports: memory-map the file and parse chunks on all cores
+    public void analyzeInParallel(final String fileName, final BankStatementCSVParser bankStatementParser)
+            throws IOException {
+        final Path path = Paths.get(RESOURCES + fileName);
+        final MappedBankStatementReader reader = new MappedBankStatementReader(bankStatementParser);
+
+        collectSummary(reader.load(path));
+    }
+
+    // For the nightly drop of per-account statements: parse every matching file concurrently
+    public void analyzeAll(final String glob, final BankStatementParser bankStatementParser) throws IOException {
+        final BatchBankStatementLoader loader = new BatchBankStatementLoader(bankStatementParser);
+        final StatementBatch batch = loader.load(Paths.get(RESOURCES), glob);
+
+        batch.getErrors().forEach((file, error) ->
+                System.err.println("Could not load " + file + ": " + error.getMessage()));
+        System.out.println("Loaded " + batch.getStatements().size() + " statements with "
+                + batch.transactionCount() + " transactions");
+
+        collectSummary(batch.merged());
+    }
+
+    // Reuses the snapshot in snapshotDirectory when it was built from a CSV of the same
+    // size and modification time by an identically configured parser; otherwise parses
+    // the CSV and refreshes the snapshot for the next run. With no directory the CSV is always parsed
+    static TransactionStore loadStatement(final Path path, final BankStatementParser bankStatementParser,
+                                          final Path snapshotDirectory) throws IOException {
+        if (snapshotDirectory == null) {
+            return parse(path, bankStatementParser);
+        }
+        final Path snapshot = snapshotDirectory.resolve(path.getFileName() + SNAPSHOT_SUFFIX);
+        final SnapshotSource source = SnapshotSource.of(path, bankStatementParser);
+        if (Files.exists(snapshot)) {
+            try {
+                return TransactionSnapshot.read(snapshot, source);
+            } catch (IOException e) {
+                System.err.println("Ignoring snapshot " + snapshot + ": " + e.getMessage());
+            }
+        }
+
+        final TransactionStore store = parse(path, bankStatementParser);
+        try {
+            Files.createDirectories(snapshotDirectory);
+            TransactionSnapshot.write(store, snapshot, source);
+        } catch (IOException e) {
+            System.err.println("Could not write snapshot " + snapshot + ": " + e.getMessage());
+        }
+        return store;
+    }
+
+    private static TransactionStore parse(final Path path, final BankStatementParser bankStatementParser) {
+        // The statement is streamed from disk into a compact columnar store, with no list of lines in between
+        return TransactionStore.of(() -> {
+            try {
+                return bankStatementParser.streamFrom(path);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
     private static void collectSummary(final BankStatementProcessor bankStatementProcessor) {
+        // All four metrics are computed in one pass over the primitive columns
+        final long[] totals = bankStatementProcessor.sumInMinorUnits(
+                RowValue.AMOUNT,
+                RowValue.amountInMonth(Month.JANUARY),
+                RowValue.amountInMonth(Month.FEBRUARY),
+                RowValue.amountForCategory("salary"));
+
         System.out.println("The total for all transactions is " +
-                bankStatementProcessor.calculateTotalAmount());
+                BankTransaction.toAmount(totals[0]));
         System.out.println("The total for all transactions in January is " +
-                bankStatementProcessor.calculateTotalInMonth(Month.JANUARY));
+                BankTransaction.toAmount(totals[1]));
         System.out.println("The total for transactions in February is " +
-                bankStatementProcessor.calculateTotalInMonth(Month.FEBRUARY));
+                BankTransaction.toAmount(totals[2]));
         System.out.println("The total salary received is " +
-                bankStatementProcessor.calculateTotalForCategory("salary"));
+                BankTransaction.toAmount(totals[3]));
     }
 }
@@ -2,5 +2,35 @@ package Chapter03.List04;
 
 @FunctionalInterface
 public interface BankTransactionFilter {
+    double DEFAULT_SELECTIVITY = 0.5;
+    // A plain lambda needs a materialized BankTransaction for every row it tests
+    double DEFAULT_COST = 10.0;
+
     boolean test(BankTransaction bankTransaction);
+
+    // Estimated fraction of rows that pass, used to order compound filters
+    default double estimateSelectivity(final TransactionStatistics statistics) {
+        return DEFAULT_SELECTIVITY;
+    }
+
+    // Relative cost of testing one row
+    default double cost() {
+        return DEFAULT_COST;
+    }
+
+    default BankTransactionFilter and(final BankTransactionFilter other) {
+        return AndFilter.of(this, other);
+    }
+
+    default BankTransactionFilter or(final BankTransactionFilter other) {
+        return OrFilter.of(this, other);
+    }
+
+    default BankTransactionFilter negate() {
+        return new NotFilter(this);
+    }
+
+    static BankTransactionFilter not(final BankTransactionFilter filter) {
+        return filter.negate();
+    }
 }
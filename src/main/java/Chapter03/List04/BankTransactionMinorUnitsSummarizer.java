@@ -0,0 +1,6 @@
+package Chapter03.List04;
+
+@FunctionalInterface
+public interface BankTransactionMinorUnitsSummarizer {
+    long summarize(long accumulator, BankTransaction bankTransaction);
+}
@@ -0,0 +1,128 @@
+package Chapter03.List04;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Method;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+// Parses every statement file in a directory concurrently. At most maxConcurrentFiles
+// files are open at once; on JDK 21+ each file gets a virtual thread, otherwise a
+// fixed pool of platform threads is used. A file that fails to parse is reported
+// in the StatementBatch instead of aborting the whole batch.
+public class BatchBankStatementLoader {
+    public static final String ALL_CSV_FILES = "*.{csv,csv.gz}";
+
+    private final BankStatementParser bankStatementParser;
+    private final int maxConcurrentFiles;
+
+    public BatchBankStatementLoader(final BankStatementParser bankStatementParser) {
+        this(bankStatementParser, Runtime.getRuntime().availableProcessors());
+    }
+
+    public BatchBankStatementLoader(final BankStatementParser bankStatementParser, final int maxConcurrentFiles) {
+        if (maxConcurrentFiles <= 0) {
+            throw new IllegalArgumentException("Concurrency must be positive: " + maxConcurrentFiles);
+        }
+        this.bankStatementParser = bankStatementParser;
+        this.maxConcurrentFiles = maxConcurrentFiles;
+    }
+
+    public StatementBatch load(final Path directory) throws IOException {
+        return load(directory, ALL_CSV_FILES);
+    }
+
+    // glob uses the java.nio.file.FileSystem#getPathMatcher syntax, e.g. "account-*.csv"
+    public StatementBatch load(final Path directory, final String glob) throws IOException {
+        final List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, glob)) {
+            for (final Path file : stream) {
+                if (Files.isRegularFile(file)) {
+                    files.add(file);
+                }
+            }
+        }
+        // Sorted so merged results do not depend on directory or completion order
+        files.sort(null);
+        return load(files);
+    }
+
+    public StatementBatch load(final List<Path> files) {
+        final Semaphore permits = new Semaphore(maxConcurrentFiles);
+        final ExecutorService executor = newExecutor(maxConcurrentFiles);
+        final Map<Path, Future<TransactionStore>> futures = new LinkedHashMap<>();
+        try {
+            for (final Path file : files) {
+                futures.put(file, executor.submit(() -> {
+                    permits.acquire();
+                    try {
+                        return parse(file);
+                    } finally {
+                        permits.release();
+                    }
+                }));
+            }
+
+            final Map<Path, TransactionStore> statements = new LinkedHashMap<>();
+            final Map<Path, Exception> errors = new LinkedHashMap<>();
+            for (final Map.Entry<Path, Future<TransactionStore>> entry : futures.entrySet()) {
+                try {
+                    statements.put(entry.getKey(), entry.getValue().get());
+                } catch (ExecutionException e) {
+                    errors.put(entry.getKey(), unwrap(e.getCause()));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while loading statements", e);
+                }
+            }
+            return new StatementBatch(statements, errors);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private TransactionStore parse(final Path file) {
+        return TransactionStore.of(() -> {
+            try {
+                return bankStatementParser.streamFrom(file);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private static Exception unwrap(final Throwable cause) {
+        if (cause instanceof UncheckedIOException) {
+            return ((UncheckedIOException) cause).getCause();
+        }
+        if (cause instanceof Exception) {
+            return (Exception) cause;
+        }
+        throw new IllegalStateException("Unexpected error while loading statements", cause);
+    }
+
+    // Virtual threads are looked up reflectively so the code still compiles and runs on Java 11;
+    // the semaphore bounds them so we never open more files than the disk can serve
+    private static ExecutorService newExecutor(final int maxConcurrentFiles) {
+        try {
+            final Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newFixedThreadPool(maxConcurrentFiles, runnable -> {
+                final Thread thread = new Thread(runnable, "statement-loader");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package Chapter03.List04;
+
+import java.time.Month;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+// One RowBitmap per value of the low-cardinality attributes: month, year,
+// category and sign. Compound filters on these attributes become bitmap
+// AND/OR/ANDNOT operations and counts become popcounts.
+public class BitmapIndex {
+    private final DescriptionDictionary descriptions;
+    private final RowBitmap[] months = new RowBitmap[12];
+    private final Map<Integer, RowBitmap> years = new HashMap<>();
+    private RowBitmap[] categories = new RowBitmap[16];
+    private final RowBitmap credits = new RowBitmap();
+    private final RowBitmap debits = new RowBitmap();
+    private int size;
+
+    public BitmapIndex(final DescriptionDictionary descriptions) {
+        this.descriptions = descriptions;
+        for (int month = 0; month < months.length; month++) {
+            months[month] = new RowBitmap();
+        }
+    }
+
+    public static BitmapIndex of(final TransactionStore store) {
+        final BitmapIndex index = new BitmapIndex(store.descriptions());
+        for (int row = 0; row < store.size(); row++) {
+            index.add(row, store.epochDay(row), store.amount(row), store.categoryId(row));
+        }
+        return index;
+    }
+
+    // Rows must be added in increasing order
+    public void add(final int row, final int epochDay, final long amount, final int categoryId) {
+        months[EpochDays.month(epochDay) - 1].add(row);
+        years.computeIfAbsent(EpochDays.year(epochDay), year -> new RowBitmap()).add(row);
+        if (categoryId >= categories.length) {
+            categories = Arrays.copyOf(categories, Math.max(categoryId + 1, categories.length * 2));
+        }
+        if (categories[categoryId] == null) {
+            categories[categoryId] = new RowBitmap();
+        }
+        categories[categoryId].add(row);
+        if (amount > 0) {
+            credits.add(row);
+        } else if (amount < 0) {
+            debits.add(row);
+        }
+        size = row + 1;
+    }
+
+    // The returned bitmaps belong to the index and must not be modified
+    public RowBitmap month(final Month month) {
+        return months[month.getValue() - 1];
+    }
+
+    public RowBitmap year(final int year) {
+        final RowBitmap bitmap = years.get(year);
+        return bitmap == null ? new RowBitmap() : bitmap;
+    }
+
+    public RowBitmap category(final String category) {
+        final int categoryId = descriptions.findCategory(category);
+        if (categoryId == DescriptionDictionary.NOT_FOUND || categoryId >= categories.length
+                || categories[categoryId] == null) {
+            return new RowBitmap();
+        }
+        return categories[categoryId];
+    }
+
+    public RowBitmap credits() {
+        return credits;
+    }
+
+    public RowBitmap debits() {
+        return debits;
+    }
+
+    public RowBitmap all() {
+        return RowBitmap.full(size);
+    }
+}
@@ -0,0 +1,99 @@
+package Chapter03.List04;
+
+import java.util.Arrays;
+
+// Scans a line in place and records the offsets of each field instead of
+// allocating substrings. Quoted fields may contain commas and "" escapes;
+// their offsets exclude the surrounding quotes.
+// A tokenizer reuses its offset arrays between lines, so it is not thread safe.
+public class CSVTokenizer {
+    private static final char SEPARATOR = ',';
+    private static final char QUOTE = '"';
+
+    private int[] starts = new int[8];
+    private int[] ends = new int[8];
+    private boolean[] escaped = new boolean[8];
+    private int fieldCount;
+
+    public int tokenize(final CharSequence line) {
+        return tokenize(line, 0, line.length());
+    }
+
+    public int tokenize(final CharSequence line, final int from, final int to) {
+        fieldCount = 0;
+        int position = from;
+        while (true) {
+            if (position < to && line.charAt(position) == QUOTE) {
+                position = scanQuoted(line, position + 1, to);
+            } else {
+                int end = position;
+                while (end < to && line.charAt(end) != SEPARATOR) {
+                    end++;
+                }
+                addField(position, end, false);
+                position = end;
+            }
+            if (position >= to) {
+                return fieldCount;
+            }
+            // skip the separator
+            position++;
+        }
+    }
+
+    private int scanQuoted(final CharSequence line, final int start, final int to) {
+        boolean hasEscapes = false;
+        int position = start;
+        while (position < to) {
+            if (line.charAt(position) == QUOTE) {
+                if (position + 1 < to && line.charAt(position + 1) == QUOTE) {
+                    hasEscapes = true;
+                    position += 2;
+                    continue;
+                }
+                break;
+            }
+            position++;
+        }
+        addField(start, position, hasEscapes);
+        // step over the closing quote and anything up to the next separator
+        while (position < to && line.charAt(position) != SEPARATOR) {
+            position++;
+        }
+        return position;
+    }
+
+    private void addField(final int start, final int end, final boolean hasEscapes) {
+        if (fieldCount == starts.length) {
+            starts = Arrays.copyOf(starts, fieldCount * 2);
+            ends = Arrays.copyOf(ends, fieldCount * 2);
+            escaped = Arrays.copyOf(escaped, fieldCount * 2);
+        }
+        starts[fieldCount] = start;
+        ends[fieldCount] = end;
+        escaped[fieldCount] = hasEscapes;
+        fieldCount++;
+    }
+
+    public int fieldCount() {
+        return fieldCount;
+    }
+
+    public int start(final int field) {
+        return starts[field];
+    }
+
+    public int end(final int field) {
+        return ends[field];
+    }
+
+    // True for a quoted field containing "" escapes, whose raw offsets differ from its value
+    public boolean isEscaped(final int field) {
+        return escaped[field];
+    }
+
+    public String field(final CharSequence line, final int field) {
+        final String value = line.subSequence(starts[field], ends[field]).toString();
+        return escaped[field] ? value.replace("\"\"", "\"") : value;
+    }
+}
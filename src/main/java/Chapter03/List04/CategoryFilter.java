@@ -0,0 +1,33 @@
+package Chapter03.List04;
+
+// Matches descriptions equal to the category ignoring case
+public class CategoryFilter implements ColumnFilter {
+    private final String category;
+
+    public CategoryFilter(final String category) {
+        this.category = category;
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    @Override
+    public boolean test(final BankTransaction bankTransaction) {
+        return bankTransaction.getDescription().equalsIgnoreCase(category);
+    }
+
+    @Override
+    public TransactionView.RowPredicate bind(final TransactionStore store) {
+        final int categoryId = store.descriptions().findCategory(category);
+        if (categoryId == DescriptionDictionary.NOT_FOUND) {
+            return row -> false;
+        }
+        return row -> store.categoryId(row) == categoryId;
+    }
+
+    @Override
+    public double estimateSelectivity(final TransactionStatistics statistics) {
+        return statistics.categorySelectivity(category);
+    }
+}
@@ -0,0 +1,15 @@
+package Chapter03.List04;
+
+// A filter that can also be evaluated straight on the columns of a store,
+// without materializing a BankTransaction for each row
+public interface ColumnFilter extends BankTransactionFilter {
+    double COLUMN_COST = 1.0;
+
+    // Resolves anything store specific once, such as a category id, and returns the row test
+    TransactionView.RowPredicate bind(TransactionStore store);
+
+    @Override
+    default double cost() {
+        return COLUMN_COST;
+    }
+}
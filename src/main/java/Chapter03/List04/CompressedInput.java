@@ -0,0 +1,64 @@
+package Chapter03.List04;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
+
+// Opens statement input that may be gzip-compressed, recognised by its magic bytes
+// rather than by the file name. Files are decompressed with ParallelGzipInputStream;
+// other streams are decompressed sequentially. zstd input is recognised but there is
+// no decoder in the JDK, so it is rejected with a clear error.
+public final class CompressedInput {
+    private static final int MAGIC_SIZE = 4;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private CompressedInput() {
+    }
+
+    public static boolean isGzip(final Path path) throws IOException {
+        return isGzip(readMagic(path));
+    }
+
+    public static InputStream open(final Path path) throws IOException {
+        final byte[] magic = readMagic(path);
+        checkSupported(magic, path.toString());
+        return isGzip(magic) ? ParallelGzipInputStream.open(path) : Files.newInputStream(path);
+    }
+
+    public static BufferedReader newReader(final Path path) throws IOException {
+        return new BufferedReader(new InputStreamReader(open(path), StandardCharsets.UTF_8));
+    }
+
+    // Peeks at the first bytes without consuming them
+    public static InputStream decompress(final InputStream inputStream) throws IOException {
+        final BufferedInputStream buffered = new BufferedInputStream(inputStream, BUFFER_SIZE);
+        buffered.mark(MAGIC_SIZE);
+        final byte[] magic = buffered.readNBytes(MAGIC_SIZE);
+        buffered.reset();
+        checkSupported(magic, "input stream");
+        return isGzip(magic) ? new GZIPInputStream(buffered, BUFFER_SIZE) : buffered;
+    }
+
+    private static byte[] readMagic(final Path path) throws IOException {
+        try (InputStream inputStream = Files.newInputStream(path)) {
+            return inputStream.readNBytes(MAGIC_SIZE);
+        }
+    }
+
+    private static boolean isGzip(final byte[] magic) {
+        return magic.length >= 2 && (magic[0] & 0xff) == 0x1f && (magic[1] & 0xff) == 0x8b;
+    }
+
+    private static void checkSupported(final byte[] magic, final String source) throws IOException {
+        if (magic.length == MAGIC_SIZE && (magic[0] & 0xff) == 0x28 && (magic[1] & 0xff) == 0xb5
+                && (magic[2] & 0xff) == 0x2f && (magic[3] & 0xff) == 0xfd) {
+            throw new IOException("zstd-compressed input is not supported, decompress it first: " + source);
+        }
+    }
+}
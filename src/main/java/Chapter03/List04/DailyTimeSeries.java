@@ -0,0 +1,139 @@
+package Chapter03.List04;
+
+import java.time.LocalDate;
+
+// Per-day buckets over a date range, built in one pass over the rows plus one pass
+// over the days. Rows do not need to be in date order since every row goes straight
+// to its day's bucket. Running and rolling sums come from prefix sums, so the whole
+// series costs O(rows + days) whatever the window length.
+// Arrays are indexed by day, index 0 being firstDay(); they are shared, not copied,
+// and must not be modified.
+public class DailyTimeSeries {
+    private final int firstEpochDay;
+    private final long[] net;
+    private final long[] debits;
+    private final long[] credits;
+    private final int[] counts;
+
+    private DailyTimeSeries(final int firstEpochDay, final int days) {
+        this.firstEpochDay = firstEpochDay;
+        this.net = new long[days];
+        this.debits = new long[days];
+        this.credits = new long[days];
+        this.counts = new int[days];
+    }
+
+    // Every day from the first to the last transaction of the store
+    public static DailyTimeSeries of(final TransactionStore store) {
+        if (store.size() == 0) {
+            return new DailyTimeSeries(0, 0);
+        }
+        int first = Integer.MAX_VALUE;
+        int last = Integer.MIN_VALUE;
+        for (int row = 0; row < store.size(); row++) {
+            first = Math.min(first, store.epochDay(row));
+            last = Math.max(last, store.epochDay(row));
+        }
+        return of(store, first, last);
+    }
+
+    // Days in [fromEpochDay, toEpochDay]; rows outside the range are ignored
+    public static DailyTimeSeries of(final TransactionStore store, final int fromEpochDay, final int toEpochDay) {
+        if (toEpochDay < fromEpochDay) {
+            throw new IllegalArgumentException("Range ends before it starts: " + fromEpochDay + " > " + toEpochDay);
+        }
+        final DailyTimeSeries series = new DailyTimeSeries(fromEpochDay, toEpochDay - fromEpochDay + 1);
+        for (int row = 0; row < store.size(); row++) {
+            final int day = store.epochDay(row) - fromEpochDay;
+            if (day < 0 || day >= series.net.length) {
+                continue;
+            }
+            final long amount = store.amount(row);
+            series.net[day] += amount;
+            if (amount < 0) {
+                series.debits[day] += amount;
+            } else {
+                series.credits[day] += amount;
+            }
+            series.counts[day]++;
+        }
+        return series;
+    }
+
+    public int days() {
+        return net.length;
+    }
+
+    public LocalDate firstDay() {
+        return LocalDate.ofEpochDay(firstEpochDay);
+    }
+
+    public LocalDate dayAt(final int index) {
+        return LocalDate.ofEpochDay(firstEpochDay + index);
+    }
+
+    // Index of the date in the arrays, or -1 outside the range
+    public int indexOf(final LocalDate date) {
+        final long index = date.toEpochDay() - firstEpochDay;
+        return index >= 0 && index < net.length ? (int) index : -1;
+    }
+
+    // Net amount per day in minor units
+    public long[] netInMinorUnits() {
+        return net;
+    }
+
+    // Sum of negative amounts per day, so spend is a negative number
+    public long[] debitsInMinorUnits() {
+        return debits;
+    }
+
+    public long[] creditsInMinorUnits() {
+        return credits;
+    }
+
+    public int[] counts() {
+        return counts;
+    }
+
+    // Balance at the end of each day
+    public long[] runningBalance(final long openingBalanceInMinorUnits) {
+        final long[] balance = new long[net.length];
+        long running = openingBalanceInMinorUnits;
+        for (int day = 0; day < net.length; day++) {
+            running += net[day];
+            balance[day] = running;
+        }
+        return balance;
+    }
+
+    public long[] rollingNet(final int windowDays) {
+        return rollingSum(net, windowDays);
+    }
+
+    // e.g. rollingDebits(7) and rollingDebits(30) for weekly and monthly spend
+    public long[] rollingDebits(final int windowDays) {
+        return rollingSum(debits, windowDays);
+    }
+
+    public long[] rollingCredits(final int windowDays) {
+        return rollingSum(credits, windowDays);
+    }
+
+    // Sum over the window of days ending at each day; the first days of the
+    // range only sum the days available
+    public static long[] rollingSum(final long[] daily, final int windowDays) {
+        if (windowDays <= 0) {
+            throw new IllegalArgumentException("Window must be at least one day: " + windowDays);
+        }
+        final long[] prefix = new long[daily.length + 1];
+        for (int day = 0; day < daily.length; day++) {
+            prefix[day + 1] = prefix[day] + daily[day];
+        }
+        final long[] rolling = new long[daily.length];
+        for (int day = 0; day < daily.length; day++) {
+            rolling[day] = prefix[day + 1] - prefix[Math.max(0, day + 1 - windowDays)];
+        }
+        return rolling;
+    }
+}
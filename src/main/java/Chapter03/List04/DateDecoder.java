@@ -0,0 +1,79 @@
+package Chapter03.List04;
+
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+
+// Decodes the fixed dd-MM-yyyy layout by reading the digits directly, without
+// going through DateTimeFormatter. Invalid input is reported with the INVALID
+// sentinel rather than an exception. Other layouts can be handled by an
+// optional fallback pattern, which is only consulted when the fast path does not apply.
+public class DateDecoder {
+    public static final int INVALID = Integer.MIN_VALUE;
+
+    private static final int LENGTH = 10;
+
+    private final DateTimeFormatter fallbackPattern;
+
+    public DateDecoder() {
+        this(null);
+    }
+
+    public DateDecoder(final DateTimeFormatter fallbackPattern) {
+        this.fallbackPattern = fallbackPattern;
+    }
+
+    public int decodeEpochDay(final CharSequence text) {
+        return decodeEpochDay(text, 0, text.length());
+    }
+
+    public int decodeEpochDay(final CharSequence text, final int from, final int to) {
+        if (to - from == LENGTH && text.charAt(from + 2) == '-' && text.charAt(from + 5) == '-') {
+            final int day = twoDigits(text, from);
+            final int month = twoDigits(text, from + 3);
+            final int year = fourDigits(text, from + 6);
+            if (day >= 0 && month >= 0 && year >= 0 && isValid(year, month, day)) {
+                return EpochDays.of(year, month, day);
+            }
+        }
+        return fallbackPattern == null ? INVALID : decodeWithFallback(text, from, to);
+    }
+
+    public LocalDate decode(final CharSequence text, final int from, final int to) {
+        final int epochDay = decodeEpochDay(text, from, to);
+        return epochDay == INVALID ? null : LocalDate.ofEpochDay(epochDay);
+    }
+
+    private int decodeWithFallback(final CharSequence text, final int from, final int to) {
+        try {
+            return (int) LocalDate.parse(text.subSequence(from, to), fallbackPattern).toEpochDay();
+        } catch (DateTimeException e) {
+            return INVALID;
+        }
+    }
+
+    private static int twoDigits(final CharSequence text, final int at) {
+        final int tens = digit(text.charAt(at));
+        final int units = digit(text.charAt(at + 1));
+        return (tens | units) < 0 ? -1 : tens * 10 + units;
+    }
+
+    private static int fourDigits(final CharSequence text, final int at) {
+        final int high = twoDigits(text, at);
+        final int low = twoDigits(text, at + 2);
+        return (high | low) < 0 ? -1 : high * 100 + low;
+    }
+
+    private static int digit(final char c) {
+        return c >= '0' && c <= '9' ? c - '0' : -1;
+    }
+
+    private static boolean isValid(final int year, final int month, final int day) {
+        return month >= 1 && month <= 12 && day >= 1 && day <= EpochDays.lengthOfMonth(year, month);
+    }
+
+    @Override
+    public String toString() {
+        return "DateDecoder{fallbackPattern=" + fallbackPattern + "}";
+    }
+}
@@ -0,0 +1,184 @@
+package Chapter03.List04;
+
+import java.util.Arrays;
+
+// Orders the rows of a store by epoch day so that any date range is a
+// contiguous slice found by binary search. Statements are usually already in
+// date order; that is detected and then the store's own column is searched
+// directly without any extra memory.
+public class DateIndex {
+    private final TransactionStore store;
+    // null while the store is in date order
+    private int[] rows;
+    private int[] epochDays;
+    private int size;
+
+    private DateIndex(final TransactionStore store) {
+        this.store = store;
+    }
+
+    public static DateIndex of(final TransactionStore store) {
+        final DateIndex index = new DateIndex(store);
+        if (!isInDateOrder(store, 0)) {
+            index.sortAll();
+        }
+        return index;
+    }
+
+    private static boolean isInDateOrder(final TransactionStore store, final int fromRow) {
+        for (int row = Math.max(fromRow, 1); row < store.size(); row++) {
+            if (store.epochDay(row) < store.epochDay(row - 1)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void sortAll() {
+        final long[] keys = sortedKeys(0, store.size());
+        rows = new int[keys.length];
+        epochDays = new int[keys.length];
+        size = 0;
+        appendKeys(keys);
+    }
+
+    // row ids fit in the low half, so sorting the packed keys sorts by date then row
+    private long[] sortedKeys(final int fromRow, final int toRow) {
+        final long[] keys = new long[toRow - fromRow];
+        for (int row = fromRow; row < toRow; row++) {
+            keys[row - fromRow] = ((long) store.epochDay(row) << 32) | row;
+        }
+        Arrays.sort(keys);
+        return keys;
+    }
+
+    private void appendKeys(final long[] keys) {
+        ensureCapacity(size + keys.length);
+        for (final long key : keys) {
+            rows[size] = (int) key;
+            epochDays[size] = (int) (key >> 32);
+            size++;
+        }
+    }
+
+    private void ensureCapacity(final int capacity) {
+        if (capacity > rows.length) {
+            final int newCapacity = Math.max(capacity, rows.length * 2);
+            rows = Arrays.copyOf(rows, newCapacity);
+            epochDays = Arrays.copyOf(epochDays, newCapacity);
+        }
+    }
+
+    // Takes in the rows added to the store from firstNewRow onwards. A batch that
+    // continues the date order costs O(batch); an out-of-order batch is merged in.
+    public void append(final int firstNewRow) {
+        final int newSize = store.size();
+        if (firstNewRow >= newSize) {
+            return;
+        }
+        if (rows == null) {
+            if (!isInDateOrder(store, firstNewRow)) {
+                sortAll();
+            }
+            return;
+        }
+        final long[] keys = sortedKeys(firstNewRow, newSize);
+        if (size == 0 || (int) (keys[0] >> 32) >= epochDays[size - 1]) {
+            appendKeys(keys);
+            return;
+        }
+        mergeKeys(keys);
+    }
+
+    private void mergeKeys(final long[] keys) {
+        final int[] mergedRows = new int[size + keys.length];
+        final int[] mergedEpochDays = new int[mergedRows.length];
+        int i = 0;
+        int j = 0;
+        for (int k = 0; k < mergedRows.length; k++) {
+            // existing rows have lower ids, so they go first among equal days
+            if (j >= keys.length || (i < size && epochDays[i] <= (int) (keys[j] >> 32))) {
+                mergedRows[k] = rows[i];
+                mergedEpochDays[k] = epochDays[i];
+                i++;
+            } else {
+                mergedRows[k] = (int) keys[j];
+                mergedEpochDays[k] = (int) (keys[j] >> 32);
+                j++;
+            }
+        }
+        rows = mergedRows;
+        epochDays = mergedEpochDays;
+        size = mergedRows.length;
+    }
+
+    public boolean isStoreInDateOrder() {
+        return rows == null;
+    }
+
+    public int size() {
+        return rows == null ? store.size() : size;
+    }
+
+    public int rowAt(final int position) {
+        return rows == null ? position : rows[position];
+    }
+
+    // Copy of the row ids at positions [from, to), in date order
+    public int[] rowsAt(final int from, final int to) {
+        if (rows != null) {
+            return Arrays.copyOfRange(rows, from, Math.max(from, to));
+        }
+        final int[] result = new int[Math.max(to - from, 0)];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = from + i;
+        }
+        return result;
+    }
+
+    public int epochDayAt(final int position) {
+        return rows == null ? store.epochDay(position) : epochDays[position];
+    }
+
+    // First position on or after the given day
+    public int lowerBound(final int epochDay) {
+        int low = 0;
+        int high = size();
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+            if (epochDayAt(middle) < epochDay) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    // First position after the given day
+    public int upperBound(final int epochDay) {
+        return epochDay == Integer.MAX_VALUE ? size() : lowerBound(epochDay + 1);
+    }
+
+    // Sum of amounts for days in [fromEpochDay, toEpochDay]
+    public long totalBetween(final int fromEpochDay, final int toEpochDay) {
+        final int end = upperBound(toEpochDay);
+        long total = 0;
+        for (int position = lowerBound(fromEpochDay); position < end; position++) {
+            total += store.amount(rowAt(position));
+        }
+        return total;
+    }
+
+    public int countBetween(final int fromEpochDay, final int toEpochDay) {
+        return fromEpochDay > toEpochDay ? 0 : upperBound(toEpochDay) - lowerBound(fromEpochDay);
+    }
+
+    public int firstEpochDay() {
+        return epochDayAt(0);
+    }
+
+    public int lastEpochDay() {
+        return epochDayAt(size() - 1);
+    }
+}
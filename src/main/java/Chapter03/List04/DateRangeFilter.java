@@ -0,0 +1,48 @@
+package Chapter03.List04;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+
+// A filter on an inclusive range of days, which the processor can answer from
+// the date index
+public class DateRangeFilter implements ColumnFilter {
+    private final int fromEpochDay;
+    private final int toEpochDay;
+
+    public DateRangeFilter(final int fromEpochDay, final int toEpochDay) {
+        this.fromEpochDay = fromEpochDay;
+        this.toEpochDay = toEpochDay;
+    }
+
+    public static DateRangeFilter between(final LocalDate from, final LocalDate to) {
+        return new DateRangeFilter((int) from.toEpochDay(), (int) to.toEpochDay());
+    }
+
+    public static DateRangeFilter inMonth(final YearMonth yearMonth) {
+        return between(yearMonth.atDay(1), yearMonth.atEndOfMonth());
+    }
+
+    public int getFromEpochDay() {
+        return fromEpochDay;
+    }
+
+    public int getToEpochDay() {
+        return toEpochDay;
+    }
+
+    @Override
+    public boolean test(final BankTransaction bankTransaction) {
+        final long epochDay = bankTransaction.getDate().toEpochDay();
+        return epochDay >= fromEpochDay && epochDay <= toEpochDay;
+    }
+
+    @Override
+    public TransactionView.RowPredicate bind(final TransactionStore store) {
+        return row -> store.epochDay(row) >= fromEpochDay && store.epochDay(row) <= toEpochDay;
+    }
+
+    @Override
+    public double estimateSelectivity(final TransactionStatistics statistics) {
+        return statistics.dateRangeSelectivity(fromEpochDay, toEpochDay);
+    }
+}
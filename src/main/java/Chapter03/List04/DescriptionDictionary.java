@@ -0,0 +1,159 @@
+package Chapter03.List04;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+// Stores each distinct description once and hands out dense int ids for it.
+// Every description also gets a category id shared by all descriptions that are
+// equal ignoring case, so category queries become int comparisons.
+// Lookups can be made straight from a range of characters, so a repeated
+// description is never copied into a new String. Not thread safe.
+public class DescriptionDictionary {
+    public static final int NOT_FOUND = -1;
+
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int EMPTY = 0;
+
+    private String[] descriptions = new String[INITIAL_CAPACITY];
+    private int[] hashes = new int[INITIAL_CAPACITY];
+    private int[] categoryIds = new int[INITIAL_CAPACITY];
+    private int size;
+
+    // Open addressing table holding id + 1, with EMPTY marking a free slot
+    private int[] slots = new int[INITIAL_CAPACITY * 2];
+
+    private final Map<String, Integer> categoriesByFoldedName = new HashMap<>();
+    private String[] categoryNames = new String[INITIAL_CAPACITY];
+
+    public int idOf(final String description) {
+        return idOf(description, 0, description.length());
+    }
+
+    public int idOf(final CharSequence text, final int from, final int to) {
+        final int hash = hash(text, from, to);
+        int slot = hash & (slots.length - 1);
+        while (slots[slot] != EMPTY) {
+            final int id = slots[slot] - 1;
+            if (hashes[id] == hash && matches(descriptions[id], text, from, to)) {
+                return id;
+            }
+            slot = (slot + 1) & (slots.length - 1);
+        }
+        final String description = text.subSequence(from, to).toString();
+        return insert(description, hash, slot);
+    }
+
+    public int find(final String description) {
+        final int hash = hash(description, 0, description.length());
+        int slot = hash & (slots.length - 1);
+        while (slots[slot] != EMPTY) {
+            final int id = slots[slot] - 1;
+            if (hashes[id] == hash && descriptions[id].equals(description)) {
+                return id;
+            }
+            slot = (slot + 1) & (slots.length - 1);
+        }
+        return NOT_FOUND;
+    }
+
+    public String get(final int id) {
+        return descriptions[id];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int categoryOf(final int id) {
+        return categoryIds[id];
+    }
+
+    // Id of the category matching the given name ignoring case, or NOT_FOUND
+    public int findCategory(final String category) {
+        final Integer categoryId = categoriesByFoldedName.get(fold(category));
+        return categoryId == null ? NOT_FOUND : categoryId;
+    }
+
+    public int categoryCount() {
+        return categoriesByFoldedName.size();
+    }
+
+    // Name of a category as first seen in the data
+    public String categoryName(final int categoryId) {
+        return categoryNames[categoryId];
+    }
+
+    private int insert(final String description, final int hash, final int slot) {
+        if (size == descriptions.length) {
+            descriptions = Arrays.copyOf(descriptions, size * 2);
+            hashes = Arrays.copyOf(hashes, size * 2);
+            categoryIds = Arrays.copyOf(categoryIds, size * 2);
+        }
+        final int id = size++;
+        descriptions[id] = description;
+        hashes[id] = hash;
+        categoryIds[id] = categoryIdOf(description);
+        slots[slot] = id + 1;
+        // keep the load factor at or below one half
+        if (size * 2 > slots.length) {
+            rehash();
+        }
+        return id;
+    }
+
+    private int categoryIdOf(final String description) {
+        final String folded = fold(description);
+        final Integer existing = categoriesByFoldedName.get(folded);
+        if (existing != null) {
+            return existing;
+        }
+        final int categoryId = categoriesByFoldedName.size();
+        if (categoryId == categoryNames.length) {
+            categoryNames = Arrays.copyOf(categoryNames, categoryId * 2);
+        }
+        categoryNames[categoryId] = description;
+        categoriesByFoldedName.put(folded, categoryId);
+        return categoryId;
+    }
+
+    private void rehash() {
+        slots = new int[slots.length * 2];
+        for (int id = 0; id < size; id++) {
+            int slot = hashes[id] & (slots.length - 1);
+            while (slots[slot] != EMPTY) {
+                slot = (slot + 1) & (slots.length - 1);
+            }
+            slots[slot] = id + 1;
+        }
+    }
+
+    private static boolean matches(final String description, final CharSequence text, final int from, final int to) {
+        if (description.length() != to - from) {
+            return false;
+        }
+        for (int i = 0; i < description.length(); i++) {
+            if (description.charAt(i) != text.charAt(from + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int hash(final CharSequence text, final int from, final int to) {
+        int hash = 0;
+        for (int i = from; i < to; i++) {
+            hash = 31 * hash + text.charAt(i);
+        }
+        return hash ^ (hash >>> 16);
+    }
+
+    // Folds case the same way String.equalsIgnoreCase compares characters
+    static String fold(final String text) {
+        final char[] folded = new char[text.length()];
+        for (int i = 0; i < folded.length; i++) {
+            folded[i] = Character.toLowerCase(Character.toUpperCase(text.charAt(i)));
+        }
+        return new String(folded);
+    }
+}
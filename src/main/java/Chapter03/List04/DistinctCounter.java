@@ -0,0 +1,133 @@
+package Chapter03.List04;
+
+import java.util.Arrays;
+import java.util.function.Function;
+
+// HyperLogLog estimate of the number of distinct values, such as merchants.
+// 2^precision one-byte registers each keep the longest run of leading zeros seen
+// among the hashes routed to them; the standard error is about 1.04 / sqrt(2^precision),
+// so the default precision of 12 uses 4 KB for roughly 1.6% error regardless of
+// how many values are added. Counters with the same precision merge by taking the
+// register-wise maximum, so chunks, partitions and months can be combined.
+public class DistinctCounter {
+    public static final int MIN_PRECISION = 4;
+    public static final int MAX_PRECISION = 16;
+    public static final int DEFAULT_PRECISION = 12;
+
+    private final int precision;
+    private final byte[] registers;
+
+    public DistinctCounter() {
+        this(DEFAULT_PRECISION);
+    }
+
+    public DistinctCounter(final int precision) {
+        if (precision < MIN_PRECISION || precision > MAX_PRECISION) {
+            throw new IllegalArgumentException("Precision must be between " + MIN_PRECISION + " and "
+                    + MAX_PRECISION + ": " + precision);
+        }
+        this.precision = precision;
+        this.registers = new byte[1 << precision];
+    }
+
+    public static MergeableBankTransactionSummarizer<DistinctCounter> summarizer(
+            final int precision, final Function<BankTransaction, ? extends CharSequence> valueOf) {
+        return MergeableBankTransactionSummarizer.of(
+                () -> new DistinctCounter(precision),
+                (counter, bankTransaction) -> counter.add(valueOf.apply(bankTransaction)),
+                DistinctCounter::merge);
+    }
+
+    // Distinct descriptions, i.e. merchants
+    public static MergeableBankTransactionSummarizer<DistinctCounter> descriptions() {
+        return summarizer(DEFAULT_PRECISION, BankTransaction::getDescription);
+    }
+
+    public DistinctCounter add(final CharSequence value) {
+        return addHash(hash(value));
+    }
+
+    // For callers that hash once and add many times, e.g. per dictionary id
+    public DistinctCounter addHash(final long hash) {
+        final int register = (int) (hash >>> (Long.SIZE - precision));
+        // A sentinel bit caps the run at 64 - precision zeros
+        final long remaining = (hash << precision) | (1L << (precision - 1));
+        final byte rank = (byte) (Long.numberOfLeadingZeros(remaining) + 1);
+        if (rank > registers[register]) {
+            registers[register] = rank;
+        }
+        return this;
+    }
+
+    public DistinctCounter merge(final DistinctCounter other) {
+        if (other.precision != precision) {
+            throw new IllegalArgumentException("Cannot merge counters with precision "
+                    + precision + " and " + other.precision);
+        }
+        for (int i = 0; i < registers.length; i++) {
+            if (other.registers[i] > registers[i]) {
+                registers[i] = other.registers[i];
+            }
+        }
+        return this;
+    }
+
+    public long estimate() {
+        final int m = registers.length;
+        double sum = 0;
+        int zeros = 0;
+        for (final byte register : registers) {
+            sum += Double.longBitsToDouble((long) (1023 - register) << 52);
+            if (register == 0) {
+                zeros++;
+            }
+        }
+        final double raw = alpha(m) * m * m / sum;
+        // Linear counting is more accurate while many registers are still empty
+        if (raw <= 2.5 * m && zeros > 0) {
+            return Math.round(m * Math.log((double) m / zeros));
+        }
+        return Math.round(raw);
+    }
+
+    public int precision() {
+        return precision;
+    }
+
+    public int sizeInBytes() {
+        return registers.length;
+    }
+
+    public void clear() {
+        Arrays.fill(registers, (byte) 0);
+    }
+
+    // 64-bit FNV-1a over the chars, finished with the MurmurHash3 mixer so every bit
+    // of the result depends on every char
+    public static long hash(final CharSequence value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    private static double alpha(final int m) {
+        switch (m) {
+            case 16:
+                return 0.673;
+            case 32:
+                return 0.697;
+            case 64:
+                return 0.709;
+            default:
+                return 0.7213 / (1 + 1.079 / m);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package Chapter03.List04;
+
+// Calendar arithmetic on epoch days (days since 1970-01-01) that avoids
+// allocating LocalDate objects. Uses the same proleptic Gregorian calendar as LocalDate.
+public final class EpochDays {
+    private static final int DAYS_PER_CYCLE = 146097;
+    private static final int DAYS_0000_TO_1970 = (DAYS_PER_CYCLE * 5) - (30 * 365 + 7);
+    // Epoch-day offset of 0000-03-01, the start of a shifted year in which February comes last
+    private static final int DAYS_0000_03_01_TO_1970 = 719468;
+
+    private EpochDays() {
+    }
+
+    public static int of(final int year, final int month, final int day) {
+        long total = 365L * year;
+        if (year >= 0) {
+            total += (year + 3) / 4 - (year + 99) / 100 + (year + 399) / 400;
+        } else {
+            total -= year / -4 - year / -100 + year / -400;
+        }
+        total += (367 * month - 362) / 12;
+        total += day - 1;
+        if (month > 2) {
+            total--;
+            if (!isLeapYear(year)) {
+                total--;
+            }
+        }
+        return (int) (total - DAYS_0000_TO_1970);
+    }
+
+    public static boolean isLeapYear(final int year) {
+        return (year & 3) == 0 && (year % 100 != 0 || year % 400 == 0);
+    }
+
+    public static int lengthOfMonth(final int year, final int month) {
+        switch (month) {
+            case 2:
+                return isLeapYear(year) ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    public static int year(final int epochDay) {
+        final int dayOfShiftedYear = dayOfShiftedYear(epochDay);
+        final int year = shiftedYear(epochDay);
+        return shiftedMonth(dayOfShiftedYear) < 10 ? year : year + 1;
+    }
+
+    // 1 = January ... 12 = December
+    public static int month(final int epochDay) {
+        final int shiftedMonth = shiftedMonth(dayOfShiftedYear(epochDay));
+        return shiftedMonth < 10 ? shiftedMonth + 3 : shiftedMonth - 9;
+    }
+
+    public static int dayOfMonth(final int epochDay) {
+        final int dayOfShiftedYear = dayOfShiftedYear(epochDay);
+        final int shiftedMonth = shiftedMonth(dayOfShiftedYear);
+        return dayOfShiftedYear - (153 * shiftedMonth + 2) / 5 + 1;
+    }
+
+    // 1 = Monday ... 7 = Sunday, as in DayOfWeek
+    public static int dayOfWeek(final int epochDay) {
+        return Math.floorMod(epochDay + 3L, 7) + 1;
+    }
+
+    // Year and month folded into one comparable key, e.g. 2017 * 12 + (2 - 1) for February 2017
+    public static int yearMonth(final int epochDay) {
+        return year(epochDay) * 12 + month(epochDay) - 1;
+    }
+
+    private static int dayOfEra(final int epochDay) {
+        final long shifted = (long) epochDay + DAYS_0000_03_01_TO_1970;
+        return (int) Math.floorMod(shifted, (long) DAYS_PER_CYCLE);
+    }
+
+    private static int yearOfEra(final int dayOfEra) {
+        return (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+    }
+
+    private static int shiftedYear(final int epochDay) {
+        final long shifted = (long) epochDay + DAYS_0000_03_01_TO_1970;
+        final long era = Math.floorDiv(shifted, (long) DAYS_PER_CYCLE);
+        return (int) (era * 400 + yearOfEra(dayOfEra(epochDay)));
+    }
+
+    private static int dayOfShiftedYear(final int epochDay) {
+        final int dayOfEra = dayOfEra(epochDay);
+        final int yearOfEra = yearOfEra(dayOfEra);
+        return dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+    }
+
+    // 0 = March ... 11 = February
+    private static int shiftedMonth(final int dayOfShiftedYear) {
+        return (5 * dayOfShiftedYear + 2) / 153;
+    }
+}
@@ -0,0 +1,205 @@
+package Chapter03.List04;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+
+// Turns a filter into a TransactionView. Conjuncts on month, year, category
+// and sign are answered together with bitmap operations; otherwise the most
+// selective conjunct that a range index can answer picks the candidate rows.
+// The remaining tests are compiled to row predicates and ordered from
+// statistics so that cheap, selective tests run first and short-circuit the rest.
+public class FilterPlanner {
+    // Above this estimated selectivity scanning is cheaper than going through an index
+    public static final double INDEX_SELECTIVITY_THRESHOLD = 0.25;
+
+    private final TransactionStore store;
+    private final TransactionStatistics statistics;
+    private final Supplier<AmountIndex> amountIndex;
+    private final Supplier<DateIndex> dateIndex;
+    private final Supplier<BitmapIndex> bitmapIndex;
+
+    public FilterPlanner(final TransactionStore store,
+                         final TransactionStatistics statistics,
+                         final Supplier<AmountIndex> amountIndex,
+                         final Supplier<DateIndex> dateIndex,
+                         final Supplier<BitmapIndex> bitmapIndex) {
+        this.store = store;
+        this.statistics = statistics;
+        this.amountIndex = amountIndex;
+        this.dateIndex = dateIndex;
+        this.bitmapIndex = bitmapIndex;
+    }
+
+    public TransactionView plan(final BankTransactionFilter filter) {
+        final List<BankTransactionFilter> conjuncts = filter instanceof AndFilter ?
+                new ArrayList<>(((AndFilter) filter).getFilters()) :
+                new ArrayList<>(Collections.singletonList(filter));
+
+        final TransactionView bitmapCandidates = bitmapScan(conjuncts);
+        if (bitmapCandidates != null) {
+            return conjuncts.isEmpty() ? bitmapCandidates : bitmapCandidates.filterRows(compileConjunction(conjuncts));
+        }
+
+        BankTransactionFilter accessPath = null;
+        double bestSelectivity = INDEX_SELECTIVITY_THRESHOLD;
+        for (final BankTransactionFilter conjunct : conjuncts) {
+            if (conjunct instanceof AmountRangeFilter || conjunct instanceof DateRangeFilter) {
+                final double selectivity = conjunct.estimateSelectivity(statistics);
+                if (selectivity <= bestSelectivity) {
+                    bestSelectivity = selectivity;
+                    accessPath = conjunct;
+                }
+            }
+        }
+
+        final TransactionView candidates;
+        if (accessPath == null) {
+            candidates = TransactionView.allRows(store);
+        } else {
+            candidates = indexScan(accessPath);
+            conjuncts.remove(accessPath);
+        }
+        return conjuncts.isEmpty() ? candidates : candidates.filterRows(compileConjunction(conjuncts));
+    }
+
+    // Intersects the bitmaps of every conjunct that has one and removes those conjuncts;
+    // null when none of them do
+    private TransactionView bitmapScan(final List<BankTransactionFilter> conjuncts) {
+        RowBitmap rows = null;
+        for (int i = conjuncts.size() - 1; i >= 0; i--) {
+            if (isBitmapEligible(conjuncts.get(i))) {
+                final RowBitmap bitmap = bitmapOf(conjuncts.remove(i));
+                rows = rows == null ? bitmap : rows.and(bitmap);
+            }
+        }
+        return rows == null ? null : TransactionView.ofBitmap(store, rows);
+    }
+
+    private static boolean isBitmapEligible(final BankTransactionFilter filter) {
+        if (filter instanceof AndFilter || filter instanceof OrFilter) {
+            final List<BankTransactionFilter> children = filter instanceof AndFilter ?
+                    ((AndFilter) filter).getFilters() : ((OrFilter) filter).getFilters();
+            for (final BankTransactionFilter child : children) {
+                if (!isBitmapEligible(child)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if (filter instanceof NotFilter) {
+            return isBitmapEligible(((NotFilter) filter).getFilter());
+        }
+        return filter instanceof MonthFilter || filter instanceof YearFilter
+                || filter instanceof CategoryFilter || filter instanceof SignFilter;
+    }
+
+    private RowBitmap bitmapOf(final BankTransactionFilter filter) {
+        final BitmapIndex index = bitmapIndex.get();
+        if (filter instanceof AndFilter) {
+            RowBitmap result = null;
+            for (final BankTransactionFilter child : ((AndFilter) filter).getFilters()) {
+                result = result == null ? bitmapOf(child) : result.and(bitmapOf(child));
+            }
+            return result == null ? index.all() : result;
+        }
+        if (filter instanceof OrFilter) {
+            RowBitmap result = new RowBitmap();
+            for (final BankTransactionFilter child : ((OrFilter) filter).getFilters()) {
+                result = result.or(bitmapOf(child));
+            }
+            return result;
+        }
+        if (filter instanceof NotFilter) {
+            return index.all().andNot(bitmapOf(((NotFilter) filter).getFilter()));
+        }
+        if (filter instanceof MonthFilter) {
+            return index.month(((MonthFilter) filter).getMonth());
+        }
+        if (filter instanceof YearFilter) {
+            return index.year(((YearFilter) filter).getYear());
+        }
+        if (filter instanceof CategoryFilter) {
+            return index.category(((CategoryFilter) filter).getCategory());
+        }
+        return ((SignFilter) filter).isCredit() ? index.credits() : index.debits();
+    }
+
+    private TransactionView indexScan(final BankTransactionFilter accessPath) {
+        if (accessPath instanceof AmountRangeFilter) {
+            final AmountRangeFilter amountRange = (AmountRangeFilter) accessPath;
+            return TransactionView.ofRows(store, amountIndex.get().rowsBetween(amountRange.getMin(), amountRange.getMax()));
+        }
+        final DateRangeFilter dateRange = (DateRangeFilter) accessPath;
+        final DateIndex index = dateIndex.get();
+        final int from = index.lowerBound(dateRange.getFromEpochDay());
+        final int to = index.upperBound(dateRange.getToEpochDay());
+        if (index.isStoreInDateOrder()) {
+            return TransactionView.dateSlice(store, index, from, to);
+        }
+        // Back to statement order, so the result matches a full scan, as for the amount index
+        final int[] rows = index.rowsAt(from, to);
+        Arrays.sort(rows);
+        return TransactionView.ofRows(store, rows);
+    }
+
+    public TransactionView.RowPredicate compile(final BankTransactionFilter filter) {
+        if (filter instanceof AndFilter) {
+            return compileConjunction(((AndFilter) filter).getFilters());
+        }
+        if (filter instanceof OrFilter) {
+            return compileDisjunction(((OrFilter) filter).getFilters());
+        }
+        if (filter instanceof NotFilter) {
+            final TransactionView.RowPredicate predicate = compile(((NotFilter) filter).getFilter());
+            return row -> !predicate.test(row);
+        }
+        if (filter instanceof ColumnFilter) {
+            return ((ColumnFilter) filter).bind(store);
+        }
+        return row -> filter.test(store.get(row));
+    }
+
+    // Cheapest cost per rejected row first
+    private TransactionView.RowPredicate compileConjunction(final List<BankTransactionFilter> filters) {
+        final TransactionView.RowPredicate[] predicates = compileOrdered(filters,
+                filter -> filter.cost() / Math.max(1.0 - filter.estimateSelectivity(statistics), 1e-9));
+        return row -> {
+            for (final TransactionView.RowPredicate predicate : predicates) {
+                if (!predicate.test(row)) {
+                    return false;
+                }
+            }
+            return true;
+        };
+    }
+
+    // Cheapest cost per accepted row first
+    private TransactionView.RowPredicate compileDisjunction(final List<BankTransactionFilter> filters) {
+        final TransactionView.RowPredicate[] predicates = compileOrdered(filters,
+                filter -> filter.cost() / Math.max(filter.estimateSelectivity(statistics), 1e-9));
+        return row -> {
+            for (final TransactionView.RowPredicate predicate : predicates) {
+                if (predicate.test(row)) {
+                    return true;
+                }
+            }
+            return false;
+        };
+    }
+
+    private TransactionView.RowPredicate[] compileOrdered(final List<BankTransactionFilter> filters,
+                                                          final ToDoubleFunction<BankTransactionFilter> rank) {
+        final List<BankTransactionFilter> ordered = new ArrayList<>(filters);
+        ordered.sort(Comparator.comparingDouble(rank));
+        final TransactionView.RowPredicate[] predicates = new TransactionView.RowPredicate[ordered.size()];
+        for (int i = 0; i < predicates.length; i++) {
+            predicates[i] = compile(ordered.get(i));
+        }
+        return predicates;
+    }
+}
@@ -0,0 +1,106 @@
+package Chapter03.List04;
+
+import java.time.DayOfWeek;
+import java.time.YearMonth;
+
+// Maps a row of a TransactionStore to a primitive group key, read straight from the
+// columns so grouping never materializes a BankTransaction, and turns a key back
+// into a readable label for the result.
+public interface GroupKey {
+    long keyOf(TransactionStore store, int row);
+
+    String label(TransactionStore store, long key);
+
+    // Key is year * 12 + month - 1, so keys sort chronologically
+    static GroupKey month() {
+        return new GroupKey() {
+            @Override
+            public long keyOf(final TransactionStore store, final int row) {
+                return EpochDays.yearMonth(store.epochDay(row));
+            }
+
+            @Override
+            public String label(final TransactionStore store, final long key) {
+                return YearMonth.of((int) Math.floorDiv(key, 12), Math.floorMod(key, 12) + 1).toString();
+            }
+        };
+    }
+
+    static GroupKey year() {
+        return new GroupKey() {
+            @Override
+            public long keyOf(final TransactionStore store, final int row) {
+                return EpochDays.year(store.epochDay(row));
+            }
+
+            @Override
+            public String label(final TransactionStore store, final long key) {
+                return Long.toString(key);
+            }
+        };
+    }
+
+    // Key is the ISO day of week, 1 for Monday to 7 for Sunday
+    static GroupKey weekday() {
+        return new GroupKey() {
+            @Override
+            public long keyOf(final TransactionStore store, final int row) {
+                return EpochDays.dayOfWeek(store.epochDay(row));
+            }
+
+            @Override
+            public String label(final TransactionStore store, final long key) {
+                return DayOfWeek.of((int) key).toString();
+            }
+        };
+    }
+
+    // Exact descriptions; the key is the dictionary id
+    static GroupKey description() {
+        return new GroupKey() {
+            @Override
+            public long keyOf(final TransactionStore store, final int row) {
+                return store.descriptionId(row);
+            }
+
+            @Override
+            public String label(final TransactionStore store, final long key) {
+                return store.descriptions().get((int) key);
+            }
+        };
+    }
+
+    // Descriptions compared ignoring case, like calculateTotalForCategory
+    static GroupKey category() {
+        return new GroupKey() {
+            @Override
+            public long keyOf(final TransactionStore store, final int row) {
+                return store.categoryId(row);
+            }
+
+            @Override
+            public String label(final TransactionStore store, final long key) {
+                return store.descriptions().categoryName((int) key);
+            }
+        };
+    }
+
+    // Buckets of width minor units; the key is the bucket's lower bound, so -50.00 with
+    // a width of 10000 falls in the bucket starting at -100.00
+    static GroupKey amountBucket(final long width) {
+        if (width <= 0) {
+            throw new IllegalArgumentException("Bucket width must be positive: " + width);
+        }
+        return new GroupKey() {
+            @Override
+            public long keyOf(final TransactionStore store, final int row) {
+                return Math.floorDiv(store.amount(row), width) * width;
+            }
+
+            @Override
+            public String label(final TransactionStore store, final long key) {
+                return "[" + BankTransaction.toAmount(key) + ", " + BankTransaction.toAmount(key + width) + ")";
+            }
+        };
+    }
+}
@@ -0,0 +1,79 @@
+package Chapter03.List04;
+
+import java.util.Arrays;
+
+// Result of BankStatementProcessor.groupBy: one entry per group, ordered by key,
+// held in parallel primitive arrays.
+public class GroupedTotals {
+    public static final int NOT_FOUND = -1;
+
+    private final TransactionStore store;
+    private final GroupKey groupKey;
+    private final long[] keys;
+    private final long[] sums;
+    private final long[] counts;
+
+    GroupedTotals(final TransactionStore store, final GroupKey groupKey, final LongAggregateTable table) {
+        this.store = store;
+        this.groupKey = groupKey;
+        this.keys = table.sortedKeys();
+        this.sums = new long[keys.length];
+        this.counts = new long[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            sums[i] = table.sum(keys[i]);
+            counts[i] = table.count(keys[i]);
+        }
+    }
+
+    public int size() {
+        return keys.length;
+    }
+
+    public long key(final int index) {
+        return keys[index];
+    }
+
+    public String label(final int index) {
+        return groupKey.label(store, keys[index]);
+    }
+
+    public long sumInMinorUnits(final int index) {
+        return sums[index];
+    }
+
+    public double sum(final int index) {
+        return BankTransaction.toAmount(sums[index]);
+    }
+
+    public long count(final int index) {
+        return counts[index];
+    }
+
+    public double average(final int index) {
+        return BankTransaction.toAmount(sums[index]) / counts[index];
+    }
+
+    public int indexOf(final long key) {
+        final int index = Arrays.binarySearch(keys, key);
+        return index >= 0 ? index : NOT_FOUND;
+    }
+
+    // Position of the group with this label, e.g. "2017-02" or "Tesco"
+    public int indexOfLabel(final String label) {
+        for (int i = 0; i < keys.length; i++) {
+            if (label(i).equals(label)) {
+                return i;
+            }
+        }
+        return NOT_FOUND;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < keys.length; i++) {
+            builder.append(label(i)).append(": ").append(sum(i)).append(" (").append(counts[i]).append(")\n");
+        }
+        return builder.toString();
+    }
+}
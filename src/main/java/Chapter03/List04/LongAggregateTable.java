@@ -0,0 +1,129 @@
+package Chapter03.List04;
+
+import java.util.Arrays;
+
+// Open-addressing hash table from a long key to a running sum and count.
+// Keys, sums and counts live in parallel primitive arrays, so there is no
+// boxing and no entry object per group. A slot is free while its count is zero.
+public class LongAggregateTable {
+    @FunctionalInterface
+    public interface EntryConsumer {
+        void accept(long key, long sum, long count);
+    }
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private long[] keys;
+    private long[] sums;
+    private long[] counts;
+    private int size;
+
+    public LongAggregateTable() {
+        this(INITIAL_CAPACITY);
+    }
+
+    public LongAggregateTable(final int expectedSize) {
+        int capacity = INITIAL_CAPACITY;
+        while (capacity < expectedSize * 2) {
+            capacity *= 2;
+        }
+        keys = new long[capacity];
+        sums = new long[capacity];
+        counts = new long[capacity];
+    }
+
+    public void add(final long key, final long amount) {
+        add(key, amount, 1);
+    }
+
+    // count must be positive
+    public void add(final long key, final long amount, final long count) {
+        final int slot = slotOf(key);
+        if (counts[slot] == 0) {
+            keys[slot] = key;
+            size++;
+        }
+        sums[slot] += amount;
+        counts[slot] += count;
+        if (size * 2 > keys.length) {
+            resize();
+        }
+    }
+
+    public void addAll(final LongAggregateTable other) {
+        for (int slot = 0; slot < other.keys.length; slot++) {
+            if (other.counts[slot] != 0) {
+                add(other.keys[slot], other.sums[slot], other.counts[slot]);
+            }
+        }
+    }
+
+    public long sum(final long key) {
+        return sums[slotOf(key)];
+    }
+
+    public long count(final long key) {
+        return counts[slotOf(key)];
+    }
+
+    public boolean contains(final long key) {
+        return counts[slotOf(key)] != 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void forEach(final EntryConsumer consumer) {
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (counts[slot] != 0) {
+                consumer.accept(keys[slot], sums[slot], counts[slot]);
+            }
+        }
+    }
+
+    // Keys of all groups in ascending order
+    public long[] sortedKeys() {
+        final long[] result = new long[size];
+        int i = 0;
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (counts[slot] != 0) {
+                result[i++] = keys[slot];
+            }
+        }
+        Arrays.sort(result);
+        return result;
+    }
+
+    private int slotOf(final long key) {
+        final int mask = keys.length - 1;
+        int slot = mix(key) & mask;
+        while (counts[slot] != 0 && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void resize() {
+        final long[] oldKeys = keys;
+        final long[] oldSums = sums;
+        final long[] oldCounts = counts;
+        keys = new long[oldKeys.length * 2];
+        sums = new long[keys.length];
+        counts = new long[keys.length];
+        for (int slot = 0; slot < oldKeys.length; slot++) {
+            if (oldCounts[slot] != 0) {
+                final int newSlot = slotOf(oldKeys[slot]);
+                keys[newSlot] = oldKeys[slot];
+                sums[newSlot] = oldSums[slot];
+                counts[newSlot] = oldCounts[slot];
+            }
+        }
+    }
+
+    private static int mix(final long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        hash ^= hash >>> 32;
+        return (int) (hash ^ (hash >>> 16));
+    }
+}
@@ -0,0 +1,168 @@
+package Chapter03.List04;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+// Memory-maps a CSV statement, cuts it into chunks that end on a newline and
+// parses every chunk on its own fork-join worker using the BankStatementCSVParser rules.
+public class MappedBankStatementReader {
+    public static final int DEFAULT_CHUNK_SIZE = 8 * 1024 * 1024;
+
+    private static final int BOUNDARY_PROBE_SIZE = 4096;
+
+    private final BankStatementCSVParser bankStatementParser;
+    private final ForkJoinPool pool;
+    private final int chunkSize;
+
+    public MappedBankStatementReader(final BankStatementCSVParser bankStatementParser) {
+        this(bankStatementParser, ForkJoinPool.commonPool(), DEFAULT_CHUNK_SIZE);
+    }
+
+    public MappedBankStatementReader(final BankStatementCSVParser bankStatementParser,
+                                     final ForkJoinPool pool,
+                                     final int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive: " + chunkSize);
+        }
+        this.bankStatementParser = bankStatementParser;
+        this.pool = pool;
+        this.chunkSize = chunkSize;
+    }
+
+    public TransactionStore read(final Path path) throws IOException {
+        // A compressed file cannot be cut at arbitrary offsets, so it is streamed instead;
+        // its members are still decompressed in parallel
+        if (CompressedInput.isGzip(path)) {
+            try (BufferedReader reader = CompressedInput.newReader(path)) {
+                return TransactionStore.of(() -> bankStatementParser.streamFrom(reader));
+            }
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            final long[] boundaries = findChunkBoundaries(channel);
+            return pool.invoke(new ChunkTask(channel, boundaries, 0, boundaries.length - 1));
+        }
+    }
+
+    public List<BankTransaction> parse(final Path path) throws IOException {
+        return read(path).toList();
+    }
+
+    public BankStatementProcessor load(final Path path) throws IOException {
+        return new BankStatementProcessor(read(path));
+    }
+
+    // Every boundary is the offset just past a newline, so no line straddles two chunks
+    private long[] findChunkBoundaries(final FileChannel channel) throws IOException {
+        final long size = channel.size();
+        final List<Long> boundaries = new ArrayList<>();
+        boundaries.add(0L);
+        final ByteBuffer probe = ByteBuffer.allocate(BOUNDARY_PROBE_SIZE);
+        long position = chunkSize;
+        while (position < size) {
+            final long boundary = nextLineStart(channel, position, probe);
+            if (boundary >= size) {
+                break;
+            }
+            boundaries.add(boundary);
+            position = boundary + chunkSize;
+        }
+        boundaries.add(size);
+
+        final long[] result = new long[boundaries.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = boundaries.get(i);
+        }
+        return result;
+    }
+
+    private static long nextLineStart(final FileChannel channel, long position, final ByteBuffer probe)
+            throws IOException {
+        while (true) {
+            probe.clear();
+            final int read = channel.read(probe, position);
+            if (read <= 0) {
+                return channel.size();
+            }
+            for (int i = 0; i < read; i++) {
+                if (probe.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+    }
+
+    private TransactionStore parseChunk(final FileChannel channel, final long start, final long end)
+            throws IOException {
+        final MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        final CharBuffer chars = StandardCharsets.UTF_8.decode(mapped);
+        final CSVTokenizer tokenizer = new CSVTokenizer();
+        final TransactionStore store = new TransactionStore();
+
+        final int length = chars.length();
+        int lineStart = 0;
+        while (lineStart < length) {
+            int lineEnd = lineStart;
+            while (lineEnd < length && chars.charAt(lineEnd) != '\n') {
+                lineEnd++;
+            }
+            final int next = lineEnd + 1;
+            if (lineEnd > lineStart && chars.charAt(lineEnd - 1) == '\r') {
+                lineEnd--;
+            }
+            if (lineEnd > lineStart) {
+                bankStatementParser.parseInto(chars, lineStart, lineEnd, tokenizer, store);
+            }
+            lineStart = next;
+        }
+        return store;
+    }
+
+    private class ChunkTask extends RecursiveTask<TransactionStore> {
+        private static final long serialVersionUID = 1L;
+
+        private final FileChannel channel;
+        private final long[] boundaries;
+        private final int from;
+        private final int to;
+
+        ChunkTask(final FileChannel channel, final long[] boundaries, final int from, final int to) {
+            this.channel = channel;
+            this.boundaries = boundaries;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected TransactionStore compute() {
+            if (to - from <= 1) {
+                try {
+                    return from < to ? parseChunk(channel, boundaries[from], boundaries[to]) : new TransactionStore();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            final int middle = (from + to) >>> 1;
+            final ChunkTask left = new ChunkTask(channel, boundaries, from, middle);
+            final ChunkTask right = new ChunkTask(channel, boundaries, middle, to);
+            left.fork();
+            final TransactionStore rightResult = right.compute();
+            final TransactionStore result = left.join();
+            // merge in file order
+            result.addAll(rightResult);
+            return result;
+        }
+    }
+}
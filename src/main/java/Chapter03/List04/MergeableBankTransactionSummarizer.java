@@ -0,0 +1,61 @@
+package Chapter03.List04;
+
+import java.util.function.BiFunction;
+import java.util.function.BinaryOperator;
+import java.util.function.Supplier;
+
+// A summarizer whose partial results over separate partitions of the
+// transactions can be combined, so the partitions can be folded in parallel.
+// identity() must return a fresh accumulator on every call, and combine must be
+// associative with identity() as its neutral element.
+public interface MergeableBankTransactionSummarizer<A> {
+    A identity();
+
+    A accumulate(A accumulator, BankTransaction bankTransaction);
+
+    A combine(A left, A right);
+
+    static <A> MergeableBankTransactionSummarizer<A> of(final Supplier<A> identity,
+                                                        final BiFunction<A, BankTransaction, A> accumulator,
+                                                        final BinaryOperator<A> combiner) {
+        return new MergeableBankTransactionSummarizer<A>() {
+            @Override
+            public A identity() {
+                return identity.get();
+            }
+
+            @Override
+            public A accumulate(final A accumulated, final BankTransaction bankTransaction) {
+                return accumulator.apply(accumulated, bankTransaction);
+            }
+
+            @Override
+            public A combine(final A left, final A right) {
+                return combiner.apply(left, right);
+            }
+        };
+    }
+
+    // Adapts an additive minor-units summarizer, such as a filtered total, without boxing per row
+    static MergeableBankTransactionSummarizer<long[]> summingMinorUnits(
+            final BankTransactionMinorUnitsSummarizer summarizer) {
+        return new MergeableBankTransactionSummarizer<long[]>() {
+            @Override
+            public long[] identity() {
+                return new long[1];
+            }
+
+            @Override
+            public long[] accumulate(final long[] accumulator, final BankTransaction bankTransaction) {
+                accumulator[0] = summarizer.summarize(accumulator[0], bankTransaction);
+                return accumulator;
+            }
+
+            @Override
+            public long[] combine(final long[] left, final long[] right) {
+                left[0] += right[0];
+                return left;
+            }
+        };
+    }
+}
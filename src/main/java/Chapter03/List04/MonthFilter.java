@@ -0,0 +1,32 @@
+package Chapter03.List04;
+
+import java.time.Month;
+
+// Matches a month of any year
+public class MonthFilter implements ColumnFilter {
+    private final Month month;
+
+    public MonthFilter(final Month month) {
+        this.month = month;
+    }
+
+    public Month getMonth() {
+        return month;
+    }
+
+    @Override
+    public boolean test(final BankTransaction bankTransaction) {
+        return bankTransaction.getDate().getMonth() == month;
+    }
+
+    @Override
+    public TransactionView.RowPredicate bind(final TransactionStore store) {
+        final int monthValue = month.getValue();
+        return row -> EpochDays.month(store.epochDay(row)) == monthValue;
+    }
+
+    @Override
+    public double estimateSelectivity(final TransactionStatistics statistics) {
+        return statistics.monthSelectivity(month);
+    }
+}
@@ -0,0 +1,33 @@
+package Chapter03.List04;
+
+public class NotFilter implements BankTransactionFilter {
+    private final BankTransactionFilter filter;
+
+    public NotFilter(final BankTransactionFilter filter) {
+        this.filter = filter;
+    }
+
+    public BankTransactionFilter getFilter() {
+        return filter;
+    }
+
+    @Override
+    public boolean test(final BankTransaction bankTransaction) {
+        return !filter.test(bankTransaction);
+    }
+
+    @Override
+    public double estimateSelectivity(final TransactionStatistics statistics) {
+        return 1.0 - filter.estimateSelectivity(statistics);
+    }
+
+    @Override
+    public double cost() {
+        return filter.cost();
+    }
+
+    @Override
+    public BankTransactionFilter negate() {
+        return filter;
+    }
+}
@@ -5,17 +5,56 @@ import java.util.List;
 
 public class Notification {
     private final List<String> errors = new ArrayList<>();
+    private final int maxErrors;
+    private int errorCount;
+
+    public Notification() {
+        this(Integer.MAX_VALUE);
+    }
+
+    // Keeps at most maxErrors messages; later errors are only counted, so a feed
+    // with millions of broken lines cannot exhaust memory
+    public Notification(final int maxErrors) {
+        if (maxErrors < 0) {
+            throw new IllegalArgumentException("Maximum number of errors must not be negative: " + maxErrors);
+        }
+        this.maxErrors = maxErrors;
+    }
 
     public void addError(final String error) {
-        errors.add(error);
+        errorCount++;
+        if (errors.size() < maxErrors) {
+            errors.add(error);
+        }
+    }
+
+    // False once maxErrors messages are kept, so callers can skip building the message
+    // and report the error with countError instead
+    public boolean acceptsMoreErrors() {
+        return errors.size() < maxErrors;
+    }
+
+    // Records an error without keeping a message for it
+    public void countError() {
+        errorCount++;
     }
 
     public boolean hasErrors() {
-        return !errors.isEmpty();
+        return errorCount > 0;
+    }
+
+    // Total number of errors reported, including those that were not kept
+    public int errorCount() {
+        return errorCount;
+    }
+
+    public boolean isTruncated() {
+        return errorCount > errors.size();
     }
 
     public String errorMessage() {
-        return errors.toString();
+        return isTruncated() ?
+                errors + " and " + (errorCount - errors.size()) + " more" : errors.toString();
     }
 
     public List<String> getErrors() {
@@ -0,0 +1,59 @@
+package Chapter03.List04;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// Matches when any filter matches; nested disjunctions are flattened
+public class OrFilter implements BankTransactionFilter {
+    private final List<BankTransactionFilter> filters;
+
+    private OrFilter(final List<BankTransactionFilter> filters) {
+        this.filters = Collections.unmodifiableList(filters);
+    }
+
+    public static OrFilter of(final BankTransactionFilter... filters) {
+        final List<BankTransactionFilter> flattened = new ArrayList<>();
+        for (final BankTransactionFilter filter : filters) {
+            if (filter instanceof OrFilter) {
+                flattened.addAll(((OrFilter) filter).filters);
+            } else {
+                flattened.add(filter);
+            }
+        }
+        return new OrFilter(flattened);
+    }
+
+    public List<BankTransactionFilter> getFilters() {
+        return filters;
+    }
+
+    @Override
+    public boolean test(final BankTransaction bankTransaction) {
+        for (final BankTransactionFilter filter : filters) {
+            if (filter.test(bankTransaction)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Assumes the filters are independent
+    @Override
+    public double estimateSelectivity(final TransactionStatistics statistics) {
+        double rejected = 1.0;
+        for (final BankTransactionFilter filter : filters) {
+            rejected *= 1.0 - filter.estimateSelectivity(statistics);
+        }
+        return 1.0 - rejected;
+    }
+
+    @Override
+    public double cost() {
+        double cost = 0;
+        for (final BankTransactionFilter filter : filters) {
+            cost += filter.cost();
+        }
+        return cost;
+    }
+}
@@ -0,0 +1,539 @@
+package Chapter03.List04;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+// Decompresses a multi-member gzip file, such as archives concatenated with cat,
+// with the members decoded in parallel. gzip does not record where members start,
+// so every offset that looks like a gzip header is a candidate. The file is cut at
+// the candidates and each piece is decoded speculatively on the pool, member after
+// member, until it passes the start of the next piece. Pieces are then stitched in
+// order from offset 0; a piece that started at a false candidate lies inside data
+// an earlier piece already decoded and is dropped. Every member's CRC and length
+// are checked. A piece's output is held in memory only up to a fixed limit; a piece
+// that would decompress to more is given up and streamed on the reading thread
+// instead, in small blocks. With a few pieces per worker in flight, memory stays
+// below about 2 x parallelism x the piece limit however large the members are.
+public class ParallelGzipInputStream extends InputStream {
+    // Below this size, or with a single member, the JDK's sequential decoder is used
+    public static final long DEFAULT_PARALLEL_THRESHOLD = 1 << 20;
+    // Most decompressed output a piece may buffer before it is decoded sequentially
+    public static final int DEFAULT_MAX_PIECE_OUTPUT = 8 << 20;
+
+    private static final int HEADER_SIZE = 10;
+    private static final int FEXTRA = 4;
+    private static final int FNAME = 8;
+    private static final int FCOMMENT = 16;
+    private static final int FHCRC = 2;
+    private static final int RESERVED_FLAGS = 0xE0;
+    private static final int SCAN_BLOCK = 1 << 20;
+    private static final int INPUT_BLOCK = 1 << 16;
+    private static final int SEQUENTIAL_BUFFER = 1 << 16;
+
+    private final FileChannel channel;
+    private final long fileSize;
+    private final long[] candidates;
+    private final ForkJoinPool pool;
+    private final int maxInFlight;
+    private final int maxPieceOutput;
+    private final Deque<Future<Segment>> pending = new ArrayDeque<>();
+    private int nextCandidate;
+    private long expected;
+    private boolean lastSegment;
+    private byte[] current = new byte[0];
+    private int currentOffset;
+    private int currentLength;
+    // Set while an oversized piece is being streamed
+    private SequentialDecoder sequential;
+    private byte[] sequentialBuffer;
+
+    private ParallelGzipInputStream(final FileChannel channel, final long fileSize, final long[] candidates,
+                                    final ForkJoinPool pool, final int maxPieceOutput) {
+        this.channel = channel;
+        this.fileSize = fileSize;
+        this.candidates = candidates;
+        this.pool = pool;
+        this.maxInFlight = Math.max(2, pool.getParallelism() * 2);
+        this.maxPieceOutput = maxPieceOutput;
+    }
+
+    public static InputStream open(final Path path) throws IOException {
+        return open(path, ForkJoinPool.commonPool(), DEFAULT_PARALLEL_THRESHOLD);
+    }
+
+    public static InputStream open(final Path path, final ForkJoinPool pool, final long parallelThreshold)
+            throws IOException {
+        return open(path, pool, parallelThreshold, DEFAULT_MAX_PIECE_OUTPUT);
+    }
+
+    public static InputStream open(final Path path, final ForkJoinPool pool, final long parallelThreshold,
+                                   final int maxPieceOutput) throws IOException {
+        if (maxPieceOutput <= 0) {
+            throw new IllegalArgumentException("maxPieceOutput must be positive: " + maxPieceOutput);
+        }
+        final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            final long size = channel.size();
+            final long[] candidates = size < parallelThreshold ? new long[0] : findCandidates(channel, size);
+            if (candidates.length < 2 || candidates[0] != 0) {
+                channel.close();
+                return new GZIPInputStream(new BufferedInputStream(Files.newInputStream(path), SEQUENTIAL_BUFFER),
+                        SEQUENTIAL_BUFFER);
+            }
+            return new ParallelGzipInputStream(channel, size, candidates, pool, maxPieceOutput);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (currentOffset == currentLength && !advance()) {
+            return -1;
+        }
+        return current[currentOffset++] & 0xff;
+    }
+
+    @Override
+    public int read(final byte[] buffer, final int offset, final int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        if (currentOffset == currentLength && !advance()) {
+            return -1;
+        }
+        final int count = Math.min(length, currentLength - currentOffset);
+        System.arraycopy(current, currentOffset, buffer, offset, count);
+        currentOffset += count;
+        return count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (final Future<Segment> future : pending) {
+            future.cancel(true);
+        }
+        pending.clear();
+        if (sequential != null) {
+            sequential.end();
+            sequential = null;
+        }
+        lastSegment = true;
+        channel.close();
+    }
+
+    // Moves on to the next piece that starts exactly where the previous one ended
+    private boolean advance() throws IOException {
+        while (!lastSegment) {
+            if (sequential != null) {
+                final int count = sequential.read(sequentialBuffer);
+                if (count > 0) {
+                    current = sequentialBuffer;
+                    currentOffset = 0;
+                    currentLength = count;
+                    return true;
+                }
+                expected = sequential.position();
+                lastSegment = sequential.trailingData || expected >= fileSize;
+                sequential.end();
+                sequential = null;
+                continue;
+            }
+            while (pending.size() < maxInFlight && nextCandidate < candidates.length) {
+                final long start = candidates[nextCandidate];
+                final long limit = nextCandidate + 1 < candidates.length ? candidates[nextCandidate + 1] : fileSize;
+                nextCandidate++;
+                if (start >= expected) {
+                    pending.add(pool.submit(() -> decodeSegment(start, limit)));
+                }
+            }
+            if (pending.isEmpty()) {
+                if (expected < fileSize) {
+                    throw new ZipException("No gzip member at offset " + expected);
+                }
+                lastSegment = true;
+                return false;
+            }
+
+            final Segment segment = await(pending.poll());
+            if (segment.start < expected) {
+                continue;
+            }
+            if (segment.start > expected) {
+                throw new ZipException("No gzip member at offset " + expected);
+            }
+            if (segment.error != null) {
+                final ZipException corrupt = new ZipException("Corrupt gzip member at offset " + segment.start);
+                corrupt.initCause(segment.error);
+                throw corrupt;
+            }
+            if (segment.oversized) {
+                if (sequentialBuffer == null) {
+                    sequentialBuffer = new byte[SEQUENTIAL_BUFFER];
+                }
+                sequential = new SequentialDecoder(channel, segment.start, segment.end);
+                continue;
+            }
+            current = segment.bytes;
+            currentOffset = 0;
+            currentLength = segment.length;
+            expected = segment.end;
+            lastSegment = segment.trailingData || expected >= fileSize;
+            if (currentLength > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Segment await(final Future<Segment> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while decompressing");
+        } catch (ExecutionException e) {
+            throw new IOException("Failed to decompress", e.getCause());
+        }
+    }
+
+    // Decodes members from start until the input passes limit, or stops at data that
+    // is not a gzip header (trailing data, which the JDK decoder ignores as well).
+    // Gives up with an oversized segment once the output would exceed maxPieceOutput
+    private Segment decodeSegment(final long start, final long limit) {
+        final Inflater inflater = new Inflater(true);
+        try {
+            final ChannelReader in = new ChannelReader(channel, start);
+            final ByteSink out = new ByteSink(maxPieceOutput);
+            final CRC32 crc = new CRC32();
+            boolean trailingData = false;
+            do {
+                if (!decodeMember(in, out, inflater, crc)) {
+                    return new Segment(start, limit, null, 0, false, true, null);
+                }
+                if (in.position() < limit && !looksLikeHeader(channel, in.position())) {
+                    trailingData = true;
+                    break;
+                }
+            } while (in.position() < limit);
+            return new Segment(start, in.position(), out.bytes, out.size, trailingData, false, null);
+        } catch (IOException | DataFormatException e) {
+            return new Segment(start, start, null, 0, false, false, e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    // Returns false, leaving the output incomplete, if the member does not fit in the sink
+    private static boolean decodeMember(final ChannelReader in, final ByteSink out, final Inflater inflater,
+                                        final CRC32 crc) throws IOException, DataFormatException {
+        final long memberStart = in.position();
+        readHeader(in);
+
+        inflater.reset();
+        final int outputStart = out.size;
+        while (!inflater.finished()) {
+            if (inflater.needsInput()) {
+                in.feed(inflater);
+            }
+            if (!out.ensureSpace()) {
+                return false;
+            }
+            final int inflated = inflater.inflate(out.bytes, out.size, out.bytes.length - out.size);
+            out.size += inflated;
+            if (inflated == 0 && inflater.needsDictionary()) {
+                throw new ZipException("Unexpected preset dictionary at offset " + memberStart);
+            }
+        }
+        in.unread(inflater.getRemaining());
+
+        crc.reset();
+        crc.update(out.bytes, outputStart, out.size - outputStart);
+        readTrailer(in, crc, out.size - outputStart, memberStart);
+        return true;
+    }
+
+    private static void readHeader(final ChannelReader in) throws IOException {
+        final long memberStart = in.position();
+        if (in.readByte() != 0x1f || in.readByte() != 0x8b || in.readByte() != 8) {
+            throw new ZipException("Not a gzip member at offset " + memberStart);
+        }
+        final int flags = in.readByte();
+        // modification time, extra flags and operating system
+        in.skip(6);
+        if ((flags & FEXTRA) != 0) {
+            in.skip(in.readByte() | in.readByte() << 8);
+        }
+        if ((flags & FNAME) != 0) {
+            while (in.readByte() != 0) {
+                // skip the zero-terminated file name
+            }
+        }
+        if ((flags & FCOMMENT) != 0) {
+            while (in.readByte() != 0) {
+                // skip the zero-terminated comment
+            }
+        }
+        if ((flags & FHCRC) != 0) {
+            in.skip(2);
+        }
+    }
+
+    // The trailer stores the CRC and the length modulo 2^32 of the member's output
+    private static void readTrailer(final ChannelReader in, final CRC32 crc, final long size, final long memberStart)
+            throws IOException {
+        final long expectedCrc = in.readIntLittleEndian() & 0xffffffffL;
+        final long expectedSize = in.readIntLittleEndian() & 0xffffffffL;
+        if (expectedCrc != crc.getValue() || expectedSize != (size & 0xffffffffL)) {
+            throw new ZipException("Checksum mismatch in gzip member at offset " + memberStart);
+        }
+    }
+
+    // Offsets of every byte sequence that passes the fixed checks of a gzip header
+    private static long[] findCandidates(final FileChannel channel, final long size) throws IOException {
+        long[] candidates = new long[16];
+        int count = 0;
+        final ByteBuffer buffer = ByteBuffer.allocate(SCAN_BLOCK + HEADER_SIZE - 1);
+        for (long blockStart = 0; blockStart < size; blockStart += SCAN_BLOCK) {
+            buffer.clear();
+            readFully(channel, buffer, blockStart);
+            final byte[] bytes = buffer.array();
+            final int end = Math.min(SCAN_BLOCK, buffer.position() - HEADER_SIZE + 1);
+            for (int i = 0; i < end; i++) {
+                if (bytes[i] == 0x1f && looksLikeHeader(bytes, i)) {
+                    if (count == candidates.length) {
+                        candidates = Arrays.copyOf(candidates, count * 2);
+                    }
+                    candidates[count++] = blockStart + i;
+                }
+            }
+        }
+        return Arrays.copyOf(candidates, count);
+    }
+
+    private static boolean looksLikeHeader(final FileChannel channel, final long position) throws IOException {
+        final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        readFully(channel, header, position);
+        return header.position() == HEADER_SIZE && looksLikeHeader(header.array(), 0);
+    }
+
+    // Magic, deflate method, no reserved flags, a known compression level and operating system
+    private static boolean looksLikeHeader(final byte[] bytes, final int offset) {
+        final int extraFlags = bytes[offset + 8] & 0xff;
+        final int operatingSystem = bytes[offset + 9] & 0xff;
+        return (bytes[offset] & 0xff) == 0x1f
+                && (bytes[offset + 1] & 0xff) == 0x8b
+                && bytes[offset + 2] == 8
+                && (bytes[offset + 3] & RESERVED_FLAGS) == 0
+                && (extraFlags == 0 || extraFlags == 2 || extraFlags == 4)
+                && (operatingSystem <= 13 || operatingSystem == 255);
+    }
+
+    private static void readFully(final FileChannel channel, final ByteBuffer buffer, final long position)
+            throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                return;
+            }
+        }
+    }
+
+    private static final class Segment {
+        final long start;
+        final long end;
+        final byte[] bytes;
+        final int length;
+        final boolean trailingData;
+        // Too large to buffer: end is the piece's limit and the piece must be streamed
+        final boolean oversized;
+        final Exception error;
+
+        Segment(final long start, final long end, final byte[] bytes, final int length,
+                final boolean trailingData, final boolean oversized, final Exception error) {
+            this.start = start;
+            this.end = end;
+            this.bytes = bytes;
+            this.length = length;
+            this.trailingData = trailingData;
+            this.oversized = oversized;
+            this.error = error;
+        }
+    }
+
+    // Decodes the members of one piece on the reading thread, a buffer at a time,
+    // with the same stopping rule and checks as decodeSegment
+    private static final class SequentialDecoder {
+        private final FileChannel channel;
+        private final long limit;
+        private final ChannelReader in;
+        private final Inflater inflater = new Inflater(true);
+        private final CRC32 crc = new CRC32();
+        private boolean inMember;
+        private boolean done;
+        private long memberStart;
+        private long memberSize;
+        boolean trailingData;
+
+        SequentialDecoder(final FileChannel channel, final long start, final long limit) {
+            this.channel = channel;
+            this.limit = limit;
+            this.in = new ChannelReader(channel, start);
+        }
+
+        long position() {
+            return in.position();
+        }
+
+        // Returns the number of bytes decoded into buffer, or 0 once the piece is finished
+        int read(final byte[] buffer) throws IOException {
+            try {
+                while (!done) {
+                    if (!inMember) {
+                        memberStart = in.position();
+                        readHeader(in);
+                        inflater.reset();
+                        crc.reset();
+                        memberSize = 0;
+                        inMember = true;
+                    }
+                    if (!inflater.finished()) {
+                        if (inflater.needsInput()) {
+                            in.feed(inflater);
+                        }
+                        final int inflated = inflater.inflate(buffer, 0, buffer.length);
+                        if (inflated == 0 && inflater.needsDictionary()) {
+                            throw new ZipException("Unexpected preset dictionary at offset " + memberStart);
+                        }
+                        if (inflated > 0) {
+                            crc.update(buffer, 0, inflated);
+                            memberSize += inflated;
+                            return inflated;
+                        }
+                        continue;
+                    }
+                    in.unread(inflater.getRemaining());
+                    readTrailer(in, crc, memberSize, memberStart);
+                    inMember = false;
+                    if (in.position() >= limit) {
+                        done = true;
+                    } else if (!looksLikeHeader(channel, in.position())) {
+                        trailingData = true;
+                        done = true;
+                    }
+                }
+                return 0;
+            } catch (DataFormatException e) {
+                final ZipException corrupt = new ZipException("Corrupt gzip member at offset " + memberStart);
+                corrupt.initCause(e);
+                throw corrupt;
+            }
+        }
+
+        void end() {
+            inflater.end();
+        }
+    }
+
+    // Positional reads through a small buffer, so pieces can share one channel
+    private static final class ChannelReader {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(INPUT_BLOCK);
+        private long bufferStart;
+        private int offset;
+        private int length;
+
+        ChannelReader(final FileChannel channel, final long position) {
+            this.channel = channel;
+            this.bufferStart = position;
+        }
+
+        long position() {
+            return bufferStart + offset;
+        }
+
+        int readByte() throws IOException {
+            if (offset == length) {
+                fill();
+            }
+            return buffer.array()[offset++] & 0xff;
+        }
+
+        int readIntLittleEndian() throws IOException {
+            return readByte() | readByte() << 8 | readByte() << 16 | readByte() << 24;
+        }
+
+        void skip(final int bytes) throws IOException {
+            for (int i = 0; i < bytes; i++) {
+                readByte();
+            }
+        }
+
+        // Hands everything left in the buffer to the inflater
+        void feed(final Inflater inflater) throws IOException {
+            if (offset == length) {
+                fill();
+            }
+            inflater.setInput(buffer.array(), offset, length - offset);
+            offset = length;
+        }
+
+        // Gives back the input the inflater did not consume
+        void unread(final int bytes) {
+            offset -= bytes;
+        }
+
+        private void fill() throws IOException {
+            bufferStart += length;
+            offset = 0;
+            buffer.clear();
+            final int read = channel.read(buffer, bufferStart);
+            length = Math.max(read, 0);
+            if (length == 0) {
+                throw new EOFException("Unexpected end of gzip input at offset " + bufferStart);
+            }
+        }
+    }
+
+    private static final class ByteSink {
+        private final int maxSize;
+        byte[] bytes;
+        int size;
+
+        ByteSink(final int maxSize) {
+            this.maxSize = maxSize;
+            this.bytes = new byte[Math.min(INPUT_BLOCK, maxSize)];
+        }
+
+        // Grows the buffer when it is full; false once it has reached maxSize
+        boolean ensureSpace() {
+            if (size < bytes.length) {
+                return true;
+            }
+            if (bytes.length == maxSize) {
+                return false;
+            }
+            bytes = Arrays.copyOf(bytes, (int) Math.min(maxSize, bytes.length * 2L));
+            return true;
+        }
+    }
+}
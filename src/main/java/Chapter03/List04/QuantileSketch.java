@@ -0,0 +1,254 @@
+package Chapter03.List04;
+
+import java.util.Arrays;
+import java.util.function.ToLongFunction;
+
+// KLL-style streaming quantile sketch over long values such as amounts in minor units.
+// Items live in a stack of compactors; level h holds items of weight 2^h. When the
+// sketch is over capacity the lowest full level is sorted and every other item, from
+// a random offset, is promoted to the level above. Memory stays O(k) whatever the
+// number of items, and a rank query is off by about 1.7 / k of the count
+// (roughly 1% for the default k). Sketches with the same k merge by concatenating
+// levels and compacting again, so partitions can be summarized independently.
+public class QuantileSketch {
+    public static final int DEFAULT_K = 200;
+
+    private static final double CAPACITY_DECAY = 2.0 / 3.0;
+    private static final int MIN_LEVEL_CAPACITY = 2;
+
+    private final int k;
+    private long[][] levels = new long[1][];
+    private int[] sizes = new int[1];
+    private int retained;
+    private int totalCapacity;
+    private long count;
+    private long min = Long.MAX_VALUE;
+    private long max = Long.MIN_VALUE;
+    private long randomState = 0x9E3779B97F4A7C15L;
+
+    public QuantileSketch() {
+        this(DEFAULT_K);
+    }
+
+    public QuantileSketch(final int k) {
+        if (k < MIN_LEVEL_CAPACITY * 4) {
+            throw new IllegalArgumentException("k must be at least " + MIN_LEVEL_CAPACITY * 4 + ": " + k);
+        }
+        this.k = k;
+        levels[0] = new long[k];
+        totalCapacity = k;
+    }
+
+    public static MergeableBankTransactionSummarizer<QuantileSketch> summarizer(
+            final ToLongFunction<BankTransaction> valueOf) {
+        return summarizer(DEFAULT_K, valueOf);
+    }
+
+    public static MergeableBankTransactionSummarizer<QuantileSketch> summarizer(
+            final int k, final ToLongFunction<BankTransaction> valueOf) {
+        return MergeableBankTransactionSummarizer.of(
+                () -> new QuantileSketch(k),
+                (sketch, bankTransaction) -> sketch.add(valueOf.applyAsLong(bankTransaction)),
+                QuantileSketch::merge);
+    }
+
+    // Quantiles of the amounts in minor units
+    public static MergeableBankTransactionSummarizer<QuantileSketch> amounts() {
+        return summarizer(BankTransaction::getAmountInMinorUnits);
+    }
+
+    public QuantileSketch add(final long value) {
+        count++;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+        append(0, value);
+        if (retained > totalCapacity) {
+            compress();
+        }
+        return this;
+    }
+
+    public QuantileSketch merge(final QuantileSketch other) {
+        if (other.k != k) {
+            throw new IllegalArgumentException("Cannot merge sketches with k " + k + " and " + other.k);
+        }
+        // Appending grows the levels being read when a sketch is merged with itself, so read a copy
+        final long[][] otherLevels = other == this ? copyLevels() : other.levels;
+        final int[] otherSizes = other == this ? sizes.clone() : other.sizes;
+        for (int level = 0; level < otherLevels.length; level++) {
+            for (int i = 0; i < otherSizes[level]; i++) {
+                append(level, otherLevels[level][i]);
+            }
+        }
+        count += other.count;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+        compress();
+        return this;
+    }
+
+    private long[][] copyLevels() {
+        final long[][] copy = new long[levels.length][];
+        for (int level = 0; level < levels.length; level++) {
+            copy[level] = Arrays.copyOf(levels[level], sizes[level]);
+        }
+        return copy;
+    }
+
+    public long count() {
+        return count;
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    public long min() {
+        checkNotEmpty();
+        return min;
+    }
+
+    public long max() {
+        checkNotEmpty();
+        return max;
+    }
+
+    public long median() {
+        return quantile(0.5);
+    }
+
+    // The smallest retained value whose estimated rank reaches fraction * count;
+    // 0 and 1 return the exact minimum and maximum
+    public long quantile(final double fraction) {
+        if (fraction < 0 || fraction > 1) {
+            throw new IllegalArgumentException("Quantile must be between 0 and 1: " + fraction);
+        }
+        checkNotEmpty();
+        if (fraction == 0) {
+            return min;
+        }
+        if (fraction == 1) {
+            return max;
+        }
+
+        final long[] values = new long[retained];
+        final long[] weights = new long[retained];
+        int size = 0;
+        for (int level = 0; level < levels.length; level++) {
+            final long[] sorted = Arrays.copyOf(levels[level], sizes[level]);
+            Arrays.sort(sorted);
+            size = mergeSorted(values, weights, size, sorted, 1L << level);
+        }
+
+        final double targetRank = fraction * count;
+        long rank = 0;
+        for (int i = 0; i < size; i++) {
+            rank += weights[i];
+            if (rank >= targetRank) {
+                return values[i];
+            }
+        }
+        return max;
+    }
+
+    public int retainedItems() {
+        return retained;
+    }
+
+    private void checkNotEmpty() {
+        if (count == 0) {
+            throw new IllegalStateException("Sketch is empty");
+        }
+    }
+
+    private int capacity(final int level) {
+        final int depth = levels.length - 1 - level;
+        return Math.max(MIN_LEVEL_CAPACITY, (int) Math.ceil(k * Math.pow(CAPACITY_DECAY, depth)));
+    }
+
+    // Compacts the lowest level that is at capacity until the sketch fits again
+    private void compress() {
+        while (retained > totalCapacity) {
+            int level = 0;
+            while (sizes[level] < capacity(level)) {
+                level++;
+            }
+            compact(level);
+        }
+    }
+
+    // Halves one level: sorts it and promotes the items at even or odd positions.
+    // An odd item out stays behind so the total weight is preserved exactly
+    private void compact(final int level) {
+        if (level + 1 == levels.length) {
+            addLevel();
+        }
+        final long[] items = levels[level];
+        int size = sizes[level];
+        Arrays.sort(items, 0, size);
+        long leftOver = 0;
+        final boolean odd = (size & 1) == 1;
+        if (odd) {
+            leftOver = items[--size];
+        }
+        for (int i = nextBit(); i < size; i += 2) {
+            append(level + 1, items[i]);
+        }
+        retained -= sizes[level];
+        sizes[level] = 0;
+        if (odd) {
+            append(level, leftOver);
+        }
+    }
+
+    private void append(final int level, final long value) {
+        while (level >= levels.length) {
+            addLevel();
+        }
+        if (sizes[level] == levels[level].length) {
+            levels[level] = Arrays.copyOf(levels[level], levels[level].length * 2);
+        }
+        levels[level][sizes[level]++] = value;
+        retained++;
+    }
+
+    // A new top level shrinks the capacity of every level below it
+    private void addLevel() {
+        levels = Arrays.copyOf(levels, levels.length + 1);
+        levels[levels.length - 1] = new long[MIN_LEVEL_CAPACITY];
+        sizes = Arrays.copyOf(sizes, sizes.length + 1);
+        totalCapacity = 0;
+        for (int level = 0; level < levels.length; level++) {
+            totalCapacity += capacity(level);
+        }
+    }
+
+    // xorshift coin, deterministic so results are reproducible
+    private int nextBit() {
+        randomState ^= randomState << 13;
+        randomState ^= randomState >>> 7;
+        randomState ^= randomState << 17;
+        return (int) (randomState >>> 63);
+    }
+
+    // Merges a sorted run of equally weighted values into values[0, size), which is sorted
+    private static int mergeSorted(final long[] values, final long[] weights, final int size,
+                                   final long[] run, final long weight) {
+        int i = size - 1;
+        int j = run.length - 1;
+        int out = size + run.length - 1;
+        while (j >= 0) {
+            if (i >= 0 && values[i] > run[j]) {
+                values[out] = values[i];
+                weights[out] = weights[i];
+                i--;
+            } else {
+                values[out] = run[j];
+                weights[out] = weight;
+                j--;
+            }
+            out--;
+        }
+        return size + run.length;
+    }
+}
@@ -0,0 +1,138 @@
+package Chapter03.List04;
+
+import java.time.Month;
+import java.time.YearMonth;
+import java.util.Arrays;
+
+// Pre-aggregated totals and counts by (year, month), by category and by
+// (year, month) x category. Month and category queries become lookups instead of scans.
+// Year-months are kept in a dense array spanning the first to the last month seen.
+public class RollupIndex {
+    private long total;
+    private int count;
+
+    private int firstYearMonth;
+    private long[] totalsByYearMonth = new long[0];
+    private int[] countsByYearMonth = new int[0];
+
+    private long[] totalsByCategory = new long[16];
+    private int[] countsByCategory = new int[16];
+
+    private final LongAggregateTable byYearMonthAndCategory = new LongAggregateTable();
+
+    public static RollupIndex of(final TransactionStore store) {
+        final RollupIndex rollups = new RollupIndex();
+        for (int row = 0; row < store.size(); row++) {
+            rollups.add(store.epochDay(row), store.amount(row), store.categoryId(row));
+        }
+        return rollups;
+    }
+
+    public void add(final int epochDay, final long amount, final int categoryId) {
+        total += amount;
+        count++;
+
+        final int yearMonth = EpochDays.yearMonth(epochDay);
+        final int monthSlot = monthSlot(yearMonth);
+        totalsByYearMonth[monthSlot] += amount;
+        countsByYearMonth[monthSlot]++;
+
+        if (categoryId >= totalsByCategory.length) {
+            final int capacity = Math.max(categoryId + 1, totalsByCategory.length * 2);
+            totalsByCategory = Arrays.copyOf(totalsByCategory, capacity);
+            countsByCategory = Arrays.copyOf(countsByCategory, capacity);
+        }
+        totalsByCategory[categoryId] += amount;
+        countsByCategory[categoryId]++;
+
+        byYearMonthAndCategory.add(key(yearMonth, categoryId), amount);
+    }
+
+    public long total() {
+        return total;
+    }
+
+    public int count() {
+        return count;
+    }
+
+    // Month of any year, matching the semantics of calculateTotalInMonth(Month)
+    public long totalInMonth(final Month month) {
+        long result = 0;
+        for (int slot = firstSlotOf(month); slot < totalsByYearMonth.length; slot += 12) {
+            result += totalsByYearMonth[slot];
+        }
+        return result;
+    }
+
+    public int countInMonth(final Month month) {
+        int result = 0;
+        for (int slot = firstSlotOf(month); slot < countsByYearMonth.length; slot += 12) {
+            result += countsByYearMonth[slot];
+        }
+        return result;
+    }
+
+    public long totalInMonth(final YearMonth yearMonth) {
+        final int slot = yearMonthKey(yearMonth) - firstYearMonth;
+        return slot >= 0 && slot < totalsByYearMonth.length ? totalsByYearMonth[slot] : 0;
+    }
+
+    public int countInMonth(final YearMonth yearMonth) {
+        final int slot = yearMonthKey(yearMonth) - firstYearMonth;
+        return slot >= 0 && slot < countsByYearMonth.length ? countsByYearMonth[slot] : 0;
+    }
+
+    public long totalForCategory(final int categoryId) {
+        return categoryId >= 0 && categoryId < totalsByCategory.length ? totalsByCategory[categoryId] : 0;
+    }
+
+    public int countForCategory(final int categoryId) {
+        return categoryId >= 0 && categoryId < countsByCategory.length ? countsByCategory[categoryId] : 0;
+    }
+
+    public long totalForCategoryInMonth(final int categoryId, final YearMonth yearMonth) {
+        return categoryId < 0 ? 0 : byYearMonthAndCategory.sum(key(yearMonthKey(yearMonth), categoryId));
+    }
+
+    // Counts are bounded by the number of rows in a store, so they fit in an int like the others
+    public int countForCategoryInMonth(final int categoryId, final YearMonth yearMonth) {
+        return categoryId < 0 ? 0
+                : Math.toIntExact(byYearMonthAndCategory.count(key(yearMonthKey(yearMonth), categoryId)));
+    }
+
+    private int firstSlotOf(final Month month) {
+        return Math.floorMod(month.getValue() - 1 - firstYearMonth, 12);
+    }
+
+    // Grows the dense month range on either side as needed
+    private int monthSlot(final int yearMonth) {
+        if (totalsByYearMonth.length == 0) {
+            firstYearMonth = yearMonth;
+            totalsByYearMonth = new long[1];
+            countsByYearMonth = new int[1];
+        } else if (yearMonth < firstYearMonth) {
+            final int shift = firstYearMonth - yearMonth;
+            final long[] totals = new long[totalsByYearMonth.length + shift];
+            final int[] counts = new int[countsByYearMonth.length + shift];
+            System.arraycopy(totalsByYearMonth, 0, totals, shift, totalsByYearMonth.length);
+            System.arraycopy(countsByYearMonth, 0, counts, shift, countsByYearMonth.length);
+            totalsByYearMonth = totals;
+            countsByYearMonth = counts;
+            firstYearMonth = yearMonth;
+        } else if (yearMonth - firstYearMonth >= totalsByYearMonth.length) {
+            final int length = yearMonth - firstYearMonth + 1;
+            totalsByYearMonth = Arrays.copyOf(totalsByYearMonth, length);
+            countsByYearMonth = Arrays.copyOf(countsByYearMonth, length);
+        }
+        return yearMonth - firstYearMonth;
+    }
+
+    static int yearMonthKey(final YearMonth yearMonth) {
+        return yearMonth.getYear() * 12 + yearMonth.getMonthValue() - 1;
+    }
+
+    private static long key(final int yearMonth, final int categoryId) {
+        return ((long) yearMonth << 32) | (categoryId & 0xFFFFFFFFL);
+    }
+}
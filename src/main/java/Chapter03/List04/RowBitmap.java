@@ -0,0 +1,449 @@
+package Chapter03.List04;
+
+import java.util.Arrays;
+
+// A compressed set of row ids in the style of a roaring bitmap. Rows are split
+// by their high 16 bits into containers; a container holds its low 16 bits either
+// as a sorted array (sparse, up to 4096 values) or as a 65536-bit bitmap (dense).
+// Binary operations return new bitmaps and never share containers with their inputs.
+public class RowBitmap {
+    private static final int MAX_ARRAY_CARDINALITY = 4096;
+    private static final int BITMAP_WORDS = 1 << 10;
+
+    private char[] keys;
+    private Container[] containers;
+    private int containerCount;
+
+    public RowBitmap() {
+        this(4);
+    }
+
+    private RowBitmap(final int capacity) {
+        keys = new char[Math.max(capacity, 1)];
+        containers = new Container[keys.length];
+    }
+
+    // Every row in [0, size)
+    public static RowBitmap full(final int size) {
+        final RowBitmap bitmap = new RowBitmap((size >>> 16) + 1);
+        for (int start = 0; start < size; start += 1 << 16) {
+            final int count = Math.min(size - start, 1 << 16);
+            final BitmapContainer container = new BitmapContainer();
+            for (int word = 0; word < count >>> 6; word++) {
+                container.words[word] = -1L;
+            }
+            if ((count & 63) != 0) {
+                container.words[count >>> 6] = (1L << (count & 63)) - 1;
+            }
+            container.cardinality = count;
+            bitmap.append((char) (start >>> 16), container.normalize());
+        }
+        return bitmap;
+    }
+
+    public void add(final int row) {
+        final char key = (char) (row >>> 16);
+        int index = findContainer(key);
+        if (index < 0) {
+            index = -index - 1;
+            insertContainer(index, key, new ArrayContainer());
+        }
+        containers[index] = containers[index].add((char) row);
+    }
+
+    public boolean contains(final int row) {
+        final int index = findContainer((char) (row >>> 16));
+        return index >= 0 && containers[index].contains((char) row);
+    }
+
+    public int cardinality() {
+        int cardinality = 0;
+        for (int i = 0; i < containerCount; i++) {
+            cardinality += containers[i].cardinality();
+        }
+        return cardinality;
+    }
+
+    public boolean isEmpty() {
+        return containerCount == 0;
+    }
+
+    public RowBitmap and(final RowBitmap other) {
+        final RowBitmap result = new RowBitmap(Math.min(containerCount, other.containerCount));
+        int i = 0;
+        int j = 0;
+        while (i < containerCount && j < other.containerCount) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                final Container container = containers[i].and(other.containers[j]);
+                if (container.cardinality() > 0) {
+                    result.append(keys[i], container);
+                }
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    public RowBitmap or(final RowBitmap other) {
+        final RowBitmap result = new RowBitmap(containerCount + other.containerCount);
+        int i = 0;
+        int j = 0;
+        while (i < containerCount || j < other.containerCount) {
+            if (j >= other.containerCount || (i < containerCount && keys[i] < other.keys[j])) {
+                result.append(keys[i], containers[i].copy());
+                i++;
+            } else if (i >= containerCount || keys[i] > other.keys[j]) {
+                result.append(other.keys[j], other.containers[j].copy());
+                j++;
+            } else {
+                result.append(keys[i], containers[i].or(other.containers[j]));
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    public RowBitmap andNot(final RowBitmap other) {
+        final RowBitmap result = new RowBitmap(containerCount);
+        int j = 0;
+        for (int i = 0; i < containerCount; i++) {
+            while (j < other.containerCount && other.keys[j] < keys[i]) {
+                j++;
+            }
+            if (j < other.containerCount && other.keys[j] == keys[i]) {
+                final Container container = containers[i].andNot(other.containers[j]);
+                if (container.cardinality() > 0) {
+                    result.append(keys[i], container);
+                }
+            } else {
+                result.append(keys[i], containers[i].copy());
+            }
+        }
+        return result;
+    }
+
+    // Visits the rows in ascending order
+    public TransactionView.RowCursor cursor() {
+        return new TransactionView.RowCursor() {
+            private int containerIndex;
+            private int position;
+            private int word = -1;
+            private long bits;
+
+            @Override
+            public int next() {
+                while (containerIndex < containerCount) {
+                    final int high = keys[containerIndex] << 16;
+                    final Container container = containers[containerIndex];
+                    if (container instanceof ArrayContainer) {
+                        final ArrayContainer array = (ArrayContainer) container;
+                        if (position < array.cardinality) {
+                            return high | array.values[position++];
+                        }
+                    } else {
+                        final long[] words = ((BitmapContainer) container).words;
+                        while (bits == 0 && word + 1 < BITMAP_WORDS) {
+                            bits = words[++word];
+                        }
+                        if (bits != 0) {
+                            final int bit = Long.numberOfTrailingZeros(bits);
+                            bits &= bits - 1;
+                            return high | (word << 6) | bit;
+                        }
+                    }
+                    containerIndex++;
+                    position = 0;
+                    word = -1;
+                    bits = 0;
+                }
+                return END;
+            }
+        };
+    }
+
+    private int findContainer(final char key) {
+        // rows are mostly added in increasing order, so try the last container first
+        if (containerCount > 0 && keys[containerCount - 1] == key) {
+            return containerCount - 1;
+        }
+        if (containerCount == 0 || keys[containerCount - 1] < key) {
+            return -containerCount - 1;
+        }
+        return Arrays.binarySearch(keys, 0, containerCount, key);
+    }
+
+    private void insertContainer(final int index, final char key, final Container container) {
+        if (containerCount == keys.length) {
+            keys = Arrays.copyOf(keys, containerCount * 2);
+            containers = Arrays.copyOf(containers, containerCount * 2);
+        }
+        System.arraycopy(keys, index, keys, index + 1, containerCount - index);
+        System.arraycopy(containers, index, containers, index + 1, containerCount - index);
+        keys[index] = key;
+        containers[index] = container;
+        containerCount++;
+    }
+
+    private void append(final char key, final Container container) {
+        insertContainer(containerCount, key, container);
+    }
+
+    private abstract static class Container {
+        abstract int cardinality();
+
+        abstract boolean contains(char value);
+
+        // May return a different container when the representation has to change
+        abstract Container add(char value);
+
+        abstract Container and(Container other);
+
+        abstract Container or(Container other);
+
+        abstract Container andNot(Container other);
+
+        abstract Container copy();
+    }
+
+    private static final class ArrayContainer extends Container {
+        private char[] values;
+        private int cardinality;
+
+        ArrayContainer() {
+            this(new char[4], 0);
+        }
+
+        ArrayContainer(final char[] values, final int cardinality) {
+            this.values = values;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        boolean contains(final char value) {
+            return Arrays.binarySearch(values, 0, cardinality, value) >= 0;
+        }
+
+        @Override
+        Container add(final char value) {
+            final int index = cardinality > 0 && values[cardinality - 1] < value ?
+                    -cardinality - 1 : Arrays.binarySearch(values, 0, cardinality, value);
+            if (index >= 0) {
+                return this;
+            }
+            if (cardinality == MAX_ARRAY_CARDINALITY) {
+                return toBitmap().add(value);
+            }
+            final int insertAt = -index - 1;
+            if (cardinality == values.length) {
+                values = Arrays.copyOf(values, Math.min(Math.max(cardinality * 2, 4), MAX_ARRAY_CARDINALITY));
+            }
+            System.arraycopy(values, insertAt, values, insertAt + 1, cardinality - insertAt);
+            values[insertAt] = value;
+            cardinality++;
+            return this;
+        }
+
+        @Override
+        Container and(final Container other) {
+            final char[] result = new char[cardinality];
+            int count = 0;
+            if (other instanceof ArrayContainer) {
+                final ArrayContainer array = (ArrayContainer) other;
+                int i = 0;
+                int j = 0;
+                while (i < cardinality && j < array.cardinality) {
+                    if (values[i] < array.values[j]) {
+                        i++;
+                    } else if (values[i] > array.values[j]) {
+                        j++;
+                    } else {
+                        result[count++] = values[i];
+                        i++;
+                        j++;
+                    }
+                }
+            } else {
+                for (int i = 0; i < cardinality; i++) {
+                    if (other.contains(values[i])) {
+                        result[count++] = values[i];
+                    }
+                }
+            }
+            return new ArrayContainer(result, count);
+        }
+
+        @Override
+        Container or(final Container other) {
+            if (other instanceof BitmapContainer) {
+                return other.or(this);
+            }
+            final ArrayContainer array = (ArrayContainer) other;
+            if (cardinality + array.cardinality > MAX_ARRAY_CARDINALITY) {
+                return toBitmap().or(array);
+            }
+            final char[] result = new char[cardinality + array.cardinality];
+            int count = 0;
+            int i = 0;
+            int j = 0;
+            while (i < cardinality || j < array.cardinality) {
+                if (j >= array.cardinality || (i < cardinality && values[i] < array.values[j])) {
+                    result[count++] = values[i++];
+                } else if (i >= cardinality || values[i] > array.values[j]) {
+                    result[count++] = array.values[j++];
+                } else {
+                    result[count++] = values[i];
+                    i++;
+                    j++;
+                }
+            }
+            return new ArrayContainer(result, count);
+        }
+
+        @Override
+        Container andNot(final Container other) {
+            final char[] result = new char[cardinality];
+            int count = 0;
+            for (int i = 0; i < cardinality; i++) {
+                if (!other.contains(values[i])) {
+                    result[count++] = values[i];
+                }
+            }
+            return new ArrayContainer(result, count);
+        }
+
+        @Override
+        Container copy() {
+            return new ArrayContainer(Arrays.copyOf(values, cardinality), cardinality);
+        }
+
+        BitmapContainer toBitmap() {
+            final BitmapContainer bitmap = new BitmapContainer();
+            for (int i = 0; i < cardinality; i++) {
+                bitmap.add(values[i]);
+            }
+            return bitmap;
+        }
+    }
+
+    private static final class BitmapContainer extends Container {
+        private final long[] words;
+        private int cardinality;
+
+        BitmapContainer() {
+            this(new long[BITMAP_WORDS], 0);
+        }
+
+        BitmapContainer(final long[] words, final int cardinality) {
+            this.words = words;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        boolean contains(final char value) {
+            return (words[value >>> 6] & (1L << value)) != 0;
+        }
+
+        @Override
+        Container add(final char value) {
+            final long mask = 1L << value;
+            if ((words[value >>> 6] & mask) == 0) {
+                words[value >>> 6] |= mask;
+                cardinality++;
+            }
+            return this;
+        }
+
+        @Override
+        Container and(final Container other) {
+            if (other instanceof ArrayContainer) {
+                return other.and(this);
+            }
+            final long[] otherWords = ((BitmapContainer) other).words;
+            final long[] result = new long[BITMAP_WORDS];
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                result[i] = words[i] & otherWords[i];
+            }
+            return withWords(result);
+        }
+
+        @Override
+        Container or(final Container other) {
+            final long[] result = Arrays.copyOf(words, BITMAP_WORDS);
+            if (other instanceof ArrayContainer) {
+                final ArrayContainer array = (ArrayContainer) other;
+                for (int i = 0; i < array.cardinality; i++) {
+                    result[array.values[i] >>> 6] |= 1L << array.values[i];
+                }
+            } else {
+                final long[] otherWords = ((BitmapContainer) other).words;
+                for (int i = 0; i < BITMAP_WORDS; i++) {
+                    result[i] |= otherWords[i];
+                }
+            }
+            return withWords(result);
+        }
+
+        @Override
+        Container andNot(final Container other) {
+            final long[] result = Arrays.copyOf(words, BITMAP_WORDS);
+            if (other instanceof ArrayContainer) {
+                final ArrayContainer array = (ArrayContainer) other;
+                for (int i = 0; i < array.cardinality; i++) {
+                    result[array.values[i] >>> 6] &= ~(1L << array.values[i]);
+                }
+            } else {
+                final long[] otherWords = ((BitmapContainer) other).words;
+                for (int i = 0; i < BITMAP_WORDS; i++) {
+                    result[i] &= ~otherWords[i];
+                }
+            }
+            return withWords(result);
+        }
+
+        @Override
+        Container copy() {
+            return new BitmapContainer(Arrays.copyOf(words, BITMAP_WORDS), cardinality);
+        }
+
+        private static Container withWords(final long[] words) {
+            int cardinality = 0;
+            for (final long word : words) {
+                cardinality += Long.bitCount(word);
+            }
+            return new BitmapContainer(words, cardinality).normalize();
+        }
+
+        // Sparse results go back to the array representation
+        Container normalize() {
+            if (cardinality > MAX_ARRAY_CARDINALITY) {
+                return this;
+            }
+            final char[] values = new char[cardinality];
+            int count = 0;
+            for (int word = 0; word < BITMAP_WORDS; word++) {
+                long bits = words[word];
+                while (bits != 0) {
+                    values[count++] = (char) ((word << 6) | Long.numberOfTrailingZeros(bits));
+                    bits &= bits - 1;
+                }
+            }
+            return new ArrayContainer(values, cardinality);
+        }
+    }
+}
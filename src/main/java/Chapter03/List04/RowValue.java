@@ -0,0 +1,72 @@
+package Chapter03.List04;
+
+import java.time.Month;
+
+// The value a group-by or column sum adds for each row, in minor units
+@FunctionalInterface
+public interface RowValue {
+    RowValue AMOUNT = (store, row) -> store.amount(row);
+    // Only negative amounts count towards the sum; other rows add zero
+    RowValue DEBITS = (store, row) -> Math.min(store.amount(row), 0);
+    RowValue CREDITS = (store, row) -> Math.max(store.amount(row), 0);
+
+    long valueOf(TransactionStore store, int row);
+
+    // Called once before a scan, so values that depend on the store can resolve it up front
+    default RowValue bind(final TransactionStore store) {
+        return this;
+    }
+
+    // Amounts in the given month of any year; other rows add zero
+    static RowValue amountInMonth(final Month month) {
+        final int monthValue = month.getValue();
+        return new RowValue() {
+            @Override
+            public long valueOf(final TransactionStore store, final int row) {
+                return EpochDays.month(store.epochDay(row)) == monthValue ? store.amount(row) : 0;
+            }
+
+            // Rows are mostly in date order, so within a scan the month is only
+            // worked out again when the day changes
+            @Override
+            public RowValue bind(final TransactionStore store) {
+                return new RowValue() {
+                    private int lastEpochDay;
+                    private boolean inMonth;
+                    private boolean started;
+
+                    @Override
+                    public long valueOf(final TransactionStore boundStore, final int row) {
+                        final int epochDay = boundStore.epochDay(row);
+                        if (!started || epochDay != lastEpochDay) {
+                            lastEpochDay = epochDay;
+                            inMonth = EpochDays.month(epochDay) == monthValue;
+                            started = true;
+                        }
+                        return inMonth ? boundStore.amount(row) : 0;
+                    }
+                };
+            }
+        };
+    }
+
+    // Amounts of the category, matched case-insensitively like calculateTotalForCategory.
+    // The category id is looked up once per scan, so each row is an int comparison
+    static RowValue amountForCategory(final String category) {
+        return new RowValue() {
+            @Override
+            public long valueOf(final TransactionStore store, final int row) {
+                return bind(store).valueOf(store, row);
+            }
+
+            @Override
+            public RowValue bind(final TransactionStore store) {
+                final int categoryId = store.descriptions().findCategory(category);
+                if (categoryId == DescriptionDictionary.NOT_FOUND) {
+                    return (boundStore, row) -> 0;
+                }
+                return (boundStore, row) -> boundStore.categoryId(row) == categoryId ? boundStore.amount(row) : 0;
+            }
+        };
+    }
+}
@@ -0,0 +1,38 @@
+package Chapter03.List04;
+
+// Matches credits (money in) or debits (money out); zero amounts are neither
+public class SignFilter implements ColumnFilter {
+    private final boolean credit;
+
+    private SignFilter(final boolean credit) {
+        this.credit = credit;
+    }
+
+    public static SignFilter credits() {
+        return new SignFilter(true);
+    }
+
+    public static SignFilter debits() {
+        return new SignFilter(false);
+    }
+
+    public boolean isCredit() {
+        return credit;
+    }
+
+    @Override
+    public boolean test(final BankTransaction bankTransaction) {
+        return credit ? bankTransaction.getAmountInMinorUnits() > 0 : bankTransaction.getAmountInMinorUnits() < 0;
+    }
+
+    @Override
+    public TransactionView.RowPredicate bind(final TransactionStore store) {
+        return credit ? row -> store.amount(row) > 0 : row -> store.amount(row) < 0;
+    }
+
+    @Override
+    public double estimateSelectivity(final TransactionStatistics statistics) {
+        return credit ? statistics.amountRangeSelectivity(1, Long.MAX_VALUE) :
+                statistics.amountRangeSelectivity(Long.MIN_VALUE, -1);
+    }
+}
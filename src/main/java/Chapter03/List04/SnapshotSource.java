@@ -0,0 +1,64 @@
+package Chapter03.List04;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Objects;
+
+// What a snapshot was built from: the size and modification time of the source
+// statement and the parser that read it. A snapshot is only reused while all three
+// still match, so an edited statement or a differently configured parser is re-parsed.
+public final class SnapshotSource {
+    public static final SnapshotSource UNKNOWN = new SnapshotSource(-1, -1, "");
+
+    private final long size;
+    private final long lastModifiedMillis;
+    private final String parserKey;
+
+    public SnapshotSource(final long size, final long lastModifiedMillis, final String parserKey) {
+        this.size = size;
+        this.lastModifiedMillis = lastModifiedMillis;
+        this.parserKey = parserKey;
+    }
+
+    public static SnapshotSource of(final Path statement, final BankStatementParser parser) throws IOException {
+        return new SnapshotSource(Files.size(statement), Files.getLastModifiedTime(statement).toMillis(),
+                parser.configuration());
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public long getLastModifiedMillis() {
+        return lastModifiedMillis;
+    }
+
+    public String getParserKey() {
+        return parserKey;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        final SnapshotSource that = (SnapshotSource) o;
+        return size == that.size && lastModifiedMillis == that.lastModifiedMillis
+                && parserKey.equals(that.parserKey);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(size, lastModifiedMillis, parserKey);
+    }
+
+    @Override
+    public String toString() {
+        return "SnapshotSource{size=" + size + ", lastModified=" + lastModifiedMillis
+                + ", parser='" + parserKey + "'}";
+    }
+}
@@ -0,0 +1,73 @@
+package Chapter03.List04;
+
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+// Outcome of a BatchBankStatementLoader run: the parsed statement of every file
+// that loaded, and the error of every file that did not, both in file order.
+public class StatementBatch {
+    private final Map<Path, TransactionStore> statements;
+    private final Map<Path, Exception> errors;
+
+    StatementBatch(final Map<Path, TransactionStore> statements, final Map<Path, Exception> errors) {
+        this.statements = Collections.unmodifiableMap(statements);
+        this.errors = Collections.unmodifiableMap(errors);
+    }
+
+    public Map<Path, TransactionStore> getStatements() {
+        return statements;
+    }
+
+    public Map<Path, Exception> getErrors() {
+        return errors;
+    }
+
+    public boolean hasErrors() {
+        return !errors.isEmpty();
+    }
+
+    public int transactionCount() {
+        int count = 0;
+        for (final TransactionStore store : statements.values()) {
+            count += store.size();
+        }
+        return count;
+    }
+
+    // All loaded statements in one processor
+    public BankStatementProcessor merged() {
+        final TransactionStore merged = new TransactionStore(transactionCount());
+        for (final TransactionStore store : statements.values()) {
+            merged.addAll(store);
+        }
+        return new BankStatementProcessor(merged);
+    }
+
+    // One processor per account, with the account taken from the file name without its extensions
+    public Map<String, BankStatementProcessor> byAccount() {
+        return byAccount(StatementBatch::accountOf);
+    }
+
+    public Map<String, BankStatementProcessor> byAccount(final Function<Path, String> accountOf) {
+        final Map<String, TransactionStore> accounts = new LinkedHashMap<>();
+        for (final Map.Entry<Path, TransactionStore> entry : statements.entrySet()) {
+            accounts.computeIfAbsent(accountOf.apply(entry.getKey()), account -> new TransactionStore())
+                    .addAll(entry.getValue());
+        }
+        final Map<String, BankStatementProcessor> processors = new LinkedHashMap<>();
+        accounts.forEach((account, store) -> processors.put(account, new BankStatementProcessor(store)));
+        return processors;
+    }
+
+    private static String accountOf(final Path file) {
+        String name = file.getFileName().toString();
+        if (name.endsWith(".gz")) {
+            name = name.substring(0, name.length() - ".gz".length());
+        }
+        final int extension = name.lastIndexOf('.');
+        return extension > 0 ? name.substring(0, extension) : name;
+    }
+}
@@ -0,0 +1,80 @@
+package Chapter03.List04;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Supplier;
+
+// Keeps the k greatest transactions by an ordering in a bounded min-heap, so the
+// top k of n transactions cost O(n log k) time and O(k) memory instead of a full sort.
+// Two partial results merge by offering one heap's contents to the other.
+public class TopTransactions {
+    private final int k;
+    private final Comparator<BankTransaction> order;
+    private final BankTransactionFilter accepted;
+    private final PriorityQueue<BankTransaction> heap;
+
+    public TopTransactions(final int k, final Comparator<BankTransaction> order) {
+        this(k, order, bankTransaction -> true);
+    }
+
+    public TopTransactions(final int k, final Comparator<BankTransaction> order,
+                           final BankTransactionFilter accepted) {
+        if (k <= 0) {
+            throw new IllegalArgumentException("k must be positive: " + k);
+        }
+        this.k = k;
+        this.order = order;
+        this.accepted = accepted;
+        // The head is the smallest of the current top k, i.e. the next one to evict
+        this.heap = new PriorityQueue<>(k, order);
+    }
+
+    // The k most negative amounts
+    public static TopTransactions largestDebits(final int k) {
+        return new TopTransactions(k, Comparator.comparingLong(BankTransaction::getAmountInMinorUnits).reversed(),
+                bankTransaction -> bankTransaction.getAmountInMinorUnits() < 0);
+    }
+
+    public static TopTransactions largestCredits(final int k) {
+        return new TopTransactions(k, Comparator.comparingLong(BankTransaction::getAmountInMinorUnits),
+                bankTransaction -> bankTransaction.getAmountInMinorUnits() > 0);
+    }
+
+    public static MergeableBankTransactionSummarizer<TopTransactions> summarizer(
+            final Supplier<TopTransactions> identity) {
+        return MergeableBankTransactionSummarizer.of(identity, TopTransactions::add, TopTransactions::merge);
+    }
+
+    public TopTransactions add(final BankTransaction bankTransaction) {
+        if (!accepted.test(bankTransaction)) {
+            return this;
+        }
+        if (heap.size() < k) {
+            heap.add(bankTransaction);
+        } else if (order.compare(bankTransaction, heap.peek()) > 0) {
+            heap.poll();
+            heap.add(bankTransaction);
+        }
+        return this;
+    }
+
+    public TopTransactions merge(final TopTransactions other) {
+        for (final BankTransaction bankTransaction : other.heap) {
+            add(bankTransaction);
+        }
+        return this;
+    }
+
+    public int size() {
+        return heap.size();
+    }
+
+    // Greatest first
+    public List<BankTransaction> toList() {
+        final List<BankTransaction> result = new ArrayList<>(heap);
+        result.sort(order.reversed());
+        return result;
+    }
+}
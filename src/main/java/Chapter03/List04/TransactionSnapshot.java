@@ -0,0 +1,247 @@
+package Chapter03.List04;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+// Versioned, checksummed binary snapshot of a TransactionStore so a parsed
+// statement can be reloaded without parsing again. All values are little-endian:
+//
+//   header      magic "BTXS", version, row count, description count (4 x int32),
+//               source size, source modification time in millis (2 x int64),
+//               parser key: int32 byte length, then UTF-8 bytes
+//   amounts     int64 per row, minor units
+//   epochDays   int32 per row
+//   ids         int32 per row, index into the dictionary
+//   dictionary  per description: int32 byte length, then UTF-8 bytes
+//   trailer     int64 CRC32 of everything above
+//
+// Reading memory-maps the file and bulk-copies each column into its array,
+// so loading costs about as much as a memory copy.
+public final class TransactionSnapshot {
+    public static final int MAGIC = 0x53585442;
+    public static final int VERSION = 2;
+
+    private static final int FIXED_HEADER_SIZE = 36;
+    private static final int TRAILER_SIZE = 8;
+    private static final int BUFFER_SIZE = 1 << 20;
+    // Map large files a slice at a time to stay under the 2 GB mapping limit
+    private static final int MAX_MAPPING = 1 << 30;
+
+    private TransactionSnapshot() {
+    }
+
+    public static void write(final TransactionStore store, final Path path) throws IOException {
+        write(store, path, SnapshotSource.UNKNOWN);
+    }
+
+    // Writes to a temporary file first so a crash never leaves a half-written snapshot behind
+    public static void write(final TransactionStore store, final Path path, final SnapshotSource source)
+            throws IOException {
+        final Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try {
+            writeTo(store, temporary, source);
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temporary);
+            throw e;
+        }
+    }
+
+    private static void writeTo(final TransactionStore store, final Path temporary, final SnapshotSource source)
+            throws IOException {
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            final ChecksummedWriter writer = new ChecksummedWriter(channel);
+            final DescriptionDictionary descriptions = store.descriptions();
+            writer.putInt(MAGIC);
+            writer.putInt(VERSION);
+            writer.putInt(store.size());
+            writer.putInt(descriptions.size());
+            writer.putLong(source.getSize());
+            writer.putLong(source.getLastModifiedMillis());
+            writer.putBytes(source.getParserKey().getBytes(StandardCharsets.UTF_8));
+
+            final long[] amounts = store.amountColumn();
+            for (int row = 0; row < store.size(); row++) {
+                writer.putLong(amounts[row]);
+            }
+            final int[] epochDays = store.epochDayColumn();
+            for (int row = 0; row < store.size(); row++) {
+                writer.putInt(epochDays[row]);
+            }
+            final int[] descriptionIds = store.descriptionIdColumn();
+            for (int row = 0; row < store.size(); row++) {
+                writer.putInt(descriptionIds[row]);
+            }
+            for (int id = 0; id < descriptions.size(); id++) {
+                writer.putBytes(descriptions.get(id).getBytes(StandardCharsets.UTF_8));
+            }
+            writer.finish();
+        }
+    }
+
+    // Reads a snapshot whatever it was built from
+    public static TransactionStore read(final Path path) throws IOException {
+        return read(path, null);
+    }
+
+    // Fails if the snapshot was not built from exactly this source
+    public static TransactionStore read(final Path path, final SnapshotSource expected) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            final long fileSize = channel.size();
+            if (fileSize < FIXED_HEADER_SIZE + TRAILER_SIZE) {
+                throw new IOException("Snapshot too short: " + path);
+            }
+            verifyChecksum(channel, fileSize, path);
+
+            final ByteBuffer header = map(channel, 0, FIXED_HEADER_SIZE);
+            if (header.getInt() != MAGIC) {
+                throw new IOException("Not a transaction snapshot: " + path);
+            }
+            final int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported snapshot version " + version + ": " + path);
+            }
+            final int size = header.getInt();
+            final int descriptionCount = header.getInt();
+            final long sourceSize = header.getLong();
+            final long sourceModified = header.getLong();
+            final int keyLength = header.getInt();
+            final long headerSize = FIXED_HEADER_SIZE + (long) keyLength;
+            if (size < 0 || descriptionCount < 0 || keyLength < 0
+                    || headerSize + 16L * size + TRAILER_SIZE > fileSize) {
+                throw new IOException("Corrupt snapshot header: " + path);
+            }
+            final byte[] key = new byte[keyLength];
+            map(channel, FIXED_HEADER_SIZE, keyLength).get(key);
+            final SnapshotSource source = new SnapshotSource(sourceSize, sourceModified,
+                    new String(key, StandardCharsets.UTF_8));
+            if (expected != null && !expected.equals(source)) {
+                throw new IOException("Stale snapshot " + path + ": built from " + source + ", expected " + expected);
+            }
+
+            long position = headerSize;
+            final long[] amounts = new long[size];
+            for (int from = 0; from < size; from += MAX_MAPPING / Long.BYTES) {
+                final int count = Math.min(size - from, MAX_MAPPING / Long.BYTES);
+                map(channel, position, (long) count * Long.BYTES).asLongBuffer().get(amounts, from, count);
+                position += (long) count * Long.BYTES;
+            }
+            final int[] epochDays = new int[size];
+            position = readInts(channel, position, epochDays);
+            final int[] descriptionIds = new int[size];
+            position = readInts(channel, position, descriptionIds);
+
+            final DescriptionDictionary descriptions = new DescriptionDictionary();
+            final ByteBuffer dictionary = map(channel, position, fileSize - TRAILER_SIZE - position);
+            for (int id = 0; id < descriptionCount; id++) {
+                final byte[] bytes = new byte[dictionary.getInt()];
+                dictionary.get(bytes);
+                descriptions.idOf(new String(bytes, StandardCharsets.UTF_8));
+            }
+            if (descriptions.size() != descriptionCount) {
+                throw new IOException("Duplicate descriptions in snapshot: " + path);
+            }
+            for (int row = 0; row < size; row++) {
+                if (descriptionIds[row] < 0 || descriptionIds[row] >= descriptionCount) {
+                    throw new IOException("Description id out of range at row " + row + ": " + path);
+                }
+            }
+            return new TransactionStore(descriptions, epochDays, amounts, descriptionIds, size);
+        }
+    }
+
+    private static long readInts(final FileChannel channel, long position, final int[] target) throws IOException {
+        for (int from = 0; from < target.length; from += MAX_MAPPING / Integer.BYTES) {
+            final int count = Math.min(target.length - from, MAX_MAPPING / Integer.BYTES);
+            map(channel, position, (long) count * Integer.BYTES).asIntBuffer().get(target, from, count);
+            position += (long) count * Integer.BYTES;
+        }
+        return position;
+    }
+
+    private static void verifyChecksum(final FileChannel channel, final long fileSize, final Path path)
+            throws IOException {
+        final long contentSize = fileSize - TRAILER_SIZE;
+        final CRC32 crc = new CRC32();
+        for (long position = 0; position < contentSize; position += MAX_MAPPING) {
+            crc.update(map(channel, position, Math.min(MAX_MAPPING, contentSize - position)));
+        }
+        if (map(channel, contentSize, TRAILER_SIZE).getLong() != crc.getValue()) {
+            throw new IOException("Snapshot checksum mismatch: " + path);
+        }
+    }
+
+    private static ByteBuffer map(final FileChannel channel, final long position, final long size)
+            throws IOException {
+        final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        return buffer;
+    }
+
+    private static final class ChecksummedWriter {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        private final CRC32 crc = new CRC32();
+
+        ChecksummedWriter(final FileChannel channel) {
+            this.channel = channel;
+        }
+
+        void putInt(final int value) throws IOException {
+            ensureRemaining(Integer.BYTES);
+            buffer.putInt(value);
+        }
+
+        void putLong(final long value) throws IOException {
+            ensureRemaining(Long.BYTES);
+            buffer.putLong(value);
+        }
+
+        void putBytes(final byte[] bytes) throws IOException {
+            putInt(bytes.length);
+            int offset = 0;
+            while (offset < bytes.length) {
+                ensureRemaining(1);
+                final int count = Math.min(buffer.remaining(), bytes.length - offset);
+                buffer.put(bytes, offset, count);
+                offset += count;
+            }
+        }
+
+        void finish() throws IOException {
+            flush();
+            buffer.putLong(crc.getValue());
+            buffer.flip();
+            writeFully();
+        }
+
+        private void ensureRemaining(final int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            crc.update(buffer.duplicate());
+            writeFully();
+        }
+
+        private void writeFully() throws IOException {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+}
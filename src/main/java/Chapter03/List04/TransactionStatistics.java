@@ -0,0 +1,79 @@
+package Chapter03.List04;
+
+import java.time.Month;
+import java.util.Arrays;
+
+// Simple statistics over a store used to estimate filter selectivity: value
+// ranges for amounts and dates, plus row counts per month and per category.
+// Ranges are assumed to be uniformly populated.
+public class TransactionStatistics {
+    private final DescriptionDictionary descriptions;
+    private int size;
+    private long minAmount = Long.MAX_VALUE;
+    private long maxAmount = Long.MIN_VALUE;
+    private int minEpochDay = Integer.MAX_VALUE;
+    private int maxEpochDay = Integer.MIN_VALUE;
+    private final int[] monthCounts = new int[12];
+    private int[] categoryCounts = new int[16];
+
+    public TransactionStatistics(final DescriptionDictionary descriptions) {
+        this.descriptions = descriptions;
+    }
+
+    public static TransactionStatistics of(final TransactionStore store) {
+        final TransactionStatistics statistics = new TransactionStatistics(store.descriptions());
+        for (int row = 0; row < store.size(); row++) {
+            statistics.add(store.epochDay(row), store.amount(row), store.categoryId(row));
+        }
+        return statistics;
+    }
+
+    public void add(final int epochDay, final long amount, final int categoryId) {
+        size++;
+        minAmount = Math.min(minAmount, amount);
+        maxAmount = Math.max(maxAmount, amount);
+        minEpochDay = Math.min(minEpochDay, epochDay);
+        maxEpochDay = Math.max(maxEpochDay, epochDay);
+        monthCounts[EpochDays.month(epochDay) - 1]++;
+        if (categoryId >= categoryCounts.length) {
+            categoryCounts = Arrays.copyOf(categoryCounts, Math.max(categoryId + 1, categoryCounts.length * 2));
+        }
+        categoryCounts[categoryId]++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public double amountRangeSelectivity(final long min, final long max) {
+        return rangeSelectivity(minAmount, maxAmount, min, max);
+    }
+
+    public double dateRangeSelectivity(final int fromEpochDay, final int toEpochDay) {
+        return rangeSelectivity(minEpochDay, maxEpochDay, fromEpochDay, toEpochDay);
+    }
+
+    public double monthSelectivity(final Month month) {
+        return size == 0 ? 0 : (double) monthCounts[month.getValue() - 1] / size;
+    }
+
+    public double categorySelectivity(final String category) {
+        final int categoryId = descriptions.findCategory(category);
+        if (size == 0 || categoryId == DescriptionDictionary.NOT_FOUND || categoryId >= categoryCounts.length) {
+            return 0;
+        }
+        return (double) categoryCounts[categoryId] / size;
+    }
+
+    private double rangeSelectivity(final long lowest, final long highest, final long from, final long to) {
+        if (size == 0) {
+            return 0;
+        }
+        final double overlapFrom = Math.max((double) lowest, (double) from);
+        final double overlapTo = Math.min((double) highest, (double) to);
+        if (overlapFrom > overlapTo) {
+            return 0;
+        }
+        return (overlapTo - overlapFrom + 1) / ((double) highest - lowest + 1);
+    }
+}
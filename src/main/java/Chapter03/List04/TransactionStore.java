@@ -0,0 +1,162 @@
+package Chapter03.List04;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+// Column-oriented storage for transactions: one primitive array per attribute
+// instead of one object per row. Row i is (epochDays[i], amounts[i], descriptionIds[i]).
+// Not thread safe for writers.
+public class TransactionStore {
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final DescriptionDictionary descriptions;
+    private int[] epochDays;
+    private long[] amounts;
+    private int[] descriptionIds;
+    private int size;
+
+    public TransactionStore() {
+        this(INITIAL_CAPACITY);
+    }
+
+    public TransactionStore(final int capacity) {
+        this.descriptions = new DescriptionDictionary();
+        this.epochDays = new int[Math.max(capacity, 1)];
+        this.amounts = new long[epochDays.length];
+        this.descriptionIds = new int[epochDays.length];
+    }
+
+    // Wraps already decoded columns, e.g. from a snapshot; the arrays are taken over, not copied
+    TransactionStore(final DescriptionDictionary descriptions, final int[] epochDays, final long[] amounts,
+                     final int[] descriptionIds, final int size) {
+        this.descriptions = descriptions;
+        this.epochDays = epochDays;
+        this.amounts = amounts;
+        this.descriptionIds = descriptionIds;
+        this.size = size;
+    }
+
+    public static TransactionStore of(final List<BankTransaction> bankTransactions) {
+        final TransactionStore store = new TransactionStore(bankTransactions.size());
+        for (final BankTransaction bankTransaction : bankTransactions) {
+            store.add(bankTransaction);
+        }
+        return store;
+    }
+
+    // Loads the transactions one at a time without an intermediate list
+    public static TransactionStore of(final Supplier<Stream<BankTransaction>> bankTransactions) {
+        final TransactionStore store = new TransactionStore();
+        try (Stream<BankTransaction> stream = bankTransactions.get()) {
+            final Iterator<BankTransaction> iterator = stream.iterator();
+            while (iterator.hasNext()) {
+                store.add(iterator.next());
+            }
+        }
+        return store;
+    }
+
+    public void add(final BankTransaction bankTransaction) {
+        add((int) bankTransaction.getDate().toEpochDay(),
+                bankTransaction.getAmountInMinorUnits(),
+                bankTransaction.getDescription());
+    }
+
+    public void add(final int epochDay, final long amountInMinorUnits, final String description) {
+        addRow(epochDay, amountInMinorUnits, descriptions.idOf(description));
+    }
+
+    // Adds a row whose description is text[from, to), interning it without an intermediate String
+    public void add(final int epochDay, final long amountInMinorUnits,
+                    final CharSequence text, final int from, final int to) {
+        addRow(epochDay, amountInMinorUnits, descriptions.idOf(text, from, to));
+    }
+
+    // Appends every row of another store, re-mapping its description ids into this dictionary
+    public void addAll(final TransactionStore other) {
+        ensureCapacity(size + other.size);
+        final int[] idMapping = new int[other.descriptions.size()];
+        for (int id = 0; id < idMapping.length; id++) {
+            idMapping[id] = descriptions.idOf(other.descriptions.get(id));
+        }
+        for (int row = 0; row < other.size; row++) {
+            addRow(other.epochDays[row], other.amounts[row], idMapping[other.descriptionIds[row]]);
+        }
+    }
+
+    private void addRow(final int epochDay, final long amountInMinorUnits, final int descriptionId) {
+        ensureCapacity(size + 1);
+        epochDays[size] = epochDay;
+        amounts[size] = amountInMinorUnits;
+        descriptionIds[size] = descriptionId;
+        size++;
+    }
+
+    private void ensureCapacity(final int capacity) {
+        if (capacity > epochDays.length) {
+            final int newCapacity = Math.max(capacity, epochDays.length * 2);
+            epochDays = Arrays.copyOf(epochDays, newCapacity);
+            amounts = Arrays.copyOf(amounts, newCapacity);
+            descriptionIds = Arrays.copyOf(descriptionIds, newCapacity);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int epochDay(final int row) {
+        return epochDays[row];
+    }
+
+    public long amount(final int row) {
+        return amounts[row];
+    }
+
+    public int descriptionId(final int row) {
+        return descriptionIds[row];
+    }
+
+    public int categoryId(final int row) {
+        return descriptions.categoryOf(descriptionIds[row]);
+    }
+
+    public String description(final int row) {
+        return descriptions.get(descriptionIds[row]);
+    }
+
+    // Raw columns for bulk encoding; only the first size() entries are meaningful
+    int[] epochDayColumn() {
+        return epochDays;
+    }
+
+    long[] amountColumn() {
+        return amounts;
+    }
+
+    int[] descriptionIdColumn() {
+        return descriptionIds;
+    }
+
+    public DescriptionDictionary descriptions() {
+        return descriptions;
+    }
+
+    // Materializes a single row; used where callers need a BankTransaction object
+    public BankTransaction get(final int row) {
+        return BankTransaction.ofMinorUnits(LocalDate.ofEpochDay(epochDays[row]), amounts[row], description(row));
+    }
+
+    public List<BankTransaction> toList() {
+        final List<BankTransaction> bankTransactions = new ArrayList<>(size);
+        for (int row = 0; row < size; row++) {
+            bankTransactions.add(get(row));
+        }
+        return bankTransactions;
+    }
+}
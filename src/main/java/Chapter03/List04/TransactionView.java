@@ -0,0 +1,242 @@
+package Chapter03.List04;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+// A lazy query result over a TransactionStore. Nothing is copied when a view is
+// created, filtered or limited: rows are only visited, and only turned into
+// BankTransaction objects, when the view is iterated or aggregated.
+// A view can be iterated any number of times.
+public class TransactionView implements Iterable<BankTransaction> {
+    // Yields row ids in order and END once exhausted
+    @FunctionalInterface
+    public interface RowCursor {
+        int END = -1;
+
+        int next();
+    }
+
+    // Tests a row id against the columns of the store
+    @FunctionalInterface
+    public interface RowPredicate {
+        boolean test(int row);
+    }
+
+    private static final int UNKNOWN_SIZE = -1;
+
+    private final TransactionStore store;
+    private final Supplier<RowCursor> cursors;
+    private final int knownSize;
+
+    public TransactionView(final TransactionStore store, final Supplier<RowCursor> cursors) {
+        this(store, cursors, UNKNOWN_SIZE);
+    }
+
+    private TransactionView(final TransactionStore store, final Supplier<RowCursor> cursors, final int knownSize) {
+        this.store = store;
+        this.cursors = cursors;
+        this.knownSize = knownSize;
+    }
+
+    public static TransactionView allRows(final TransactionStore store) {
+        return rowRange(store, 0, store.size());
+    }
+
+    public static TransactionView rowRange(final TransactionStore store, final int from, final int to) {
+        return new TransactionView(store, () -> new RowCursor() {
+            private int row = from;
+
+            @Override
+            public int next() {
+                return row < to ? row++ : END;
+            }
+        }, Math.max(to - from, 0));
+    }
+
+    // rows must not be modified afterwards
+    public static TransactionView ofRows(final TransactionStore store, final int[] rows) {
+        return new TransactionView(store, () -> new RowCursor() {
+            private int position;
+
+            @Override
+            public int next() {
+                return position < rows.length ? rows[position++] : END;
+            }
+        }, rows.length);
+    }
+
+    // Index bitmaps keep growing as rows are appended to the store; the view only
+    // sees the rows that existed when it was created
+    public static TransactionView ofBitmap(final TransactionStore store, final RowBitmap rows) {
+        final int size = store.size();
+        return new TransactionView(store, () -> {
+            final RowCursor cursor = rows.cursor();
+            return () -> {
+                final int row = cursor.next();
+                return row < size ? row : RowCursor.END;
+            };
+        }, rows.cardinality());
+    }
+
+    // The rows at positions [from, to) of a date index. The row ids are captured up front,
+    // since an out-of-order append reshuffles the positions of the index
+    public static TransactionView dateSlice(final TransactionStore store, final DateIndex index,
+                                            final int from, final int to) {
+        if (index.isStoreInDateOrder()) {
+            return rowRange(store, from, to);
+        }
+        return ofRows(store, index.rowsAt(from, to));
+    }
+
+    public TransactionView filter(final BankTransactionFilter filter) {
+        return new TransactionView(store, () -> {
+            final RowCursor cursor = cursors.get();
+            return () -> {
+                int row;
+                while ((row = cursor.next()) != RowCursor.END) {
+                    if (filter.test(store.get(row))) {
+                        return row;
+                    }
+                }
+                return RowCursor.END;
+            };
+        });
+    }
+
+    // Like filter, but tests row ids directly so no row is materialized
+    public TransactionView filterRows(final RowPredicate predicate) {
+        return new TransactionView(store, () -> {
+            final RowCursor cursor = cursors.get();
+            return () -> {
+                int row;
+                while ((row = cursor.next()) != RowCursor.END) {
+                    if (predicate.test(row)) {
+                        return row;
+                    }
+                }
+                return RowCursor.END;
+            };
+        });
+    }
+
+    public TransactionView limit(final int maxSize) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("maxSize must not be negative: " + maxSize);
+        }
+        return new TransactionView(store, () -> {
+            final RowCursor cursor = cursors.get();
+            return new RowCursor() {
+                private int remaining = maxSize;
+
+                @Override
+                public int next() {
+                    return remaining-- > 0 ? cursor.next() : END;
+                }
+            };
+        }, knownSize == UNKNOWN_SIZE ? UNKNOWN_SIZE : Math.min(knownSize, maxSize));
+    }
+
+    public RowCursor cursor() {
+        return cursors.get();
+    }
+
+    public int count() {
+        if (knownSize != UNKNOWN_SIZE) {
+            return knownSize;
+        }
+        final RowCursor cursor = cursors.get();
+        int count = 0;
+        while (cursor.next() != RowCursor.END) {
+            count++;
+        }
+        return count;
+    }
+
+    public boolean isEmpty() {
+        return knownSize == 0 || cursors.get().next() == RowCursor.END;
+    }
+
+    public Optional<BankTransaction> first() {
+        final int row = cursors.get().next();
+        return row == RowCursor.END ? Optional.empty() : Optional.of(store.get(row));
+    }
+
+    // Sums straight from the amount column without materializing any rows
+    public long totalInMinorUnits() {
+        final RowCursor cursor = cursors.get();
+        long total = 0;
+        int row;
+        while ((row = cursor.next()) != RowCursor.END) {
+            total += store.amount(row);
+        }
+        return total;
+    }
+
+    public double calculateTotal() {
+        return BankTransaction.toAmount(totalInMinorUnits());
+    }
+
+    public double summarize(final BankTransactionSummarizer summarizer) {
+        double result = 0;
+        for (final BankTransaction bankTransaction : this) {
+            result = summarizer.summarize(result, bankTransaction);
+        }
+        return result;
+    }
+
+    // Single pass over the view with a mergeable summarizer, e.g. a quantile sketch of one category
+    public <A> A aggregate(final MergeableBankTransactionSummarizer<A> summarizer) {
+        A accumulator = summarizer.identity();
+        for (final BankTransaction bankTransaction : this) {
+            accumulator = summarizer.accumulate(accumulator, bankTransaction);
+        }
+        return accumulator;
+    }
+
+    @Override
+    public Iterator<BankTransaction> iterator() {
+        final RowCursor cursor = cursors.get();
+        return new Iterator<BankTransaction>() {
+            private int next = cursor.next();
+
+            @Override
+            public boolean hasNext() {
+                return next != RowCursor.END;
+            }
+
+            @Override
+            public BankTransaction next() {
+                if (next == RowCursor.END) {
+                    throw new NoSuchElementException();
+                }
+                final BankTransaction bankTransaction = store.get(next);
+                next = cursor.next();
+                return bankTransaction;
+            }
+        };
+    }
+
+    public Stream<BankTransaction> stream() {
+        final int characteristics = Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.IMMUTABLE;
+        final Spliterator<BankTransaction> spliterator = knownSize == UNKNOWN_SIZE ?
+                Spliterators.spliteratorUnknownSize(iterator(), characteristics) :
+                Spliterators.spliterator(iterator(), knownSize, characteristics);
+        return StreamSupport.stream(spliterator, false);
+    }
+
+    public List<BankTransaction> toList() {
+        final List<BankTransaction> result = knownSize == UNKNOWN_SIZE ? new ArrayList<>() : new ArrayList<>(knownSize);
+        for (final BankTransaction bankTransaction : this) {
+            result.add(bankTransaction);
+        }
+        return result;
+    }
+}
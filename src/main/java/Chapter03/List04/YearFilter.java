@@ -0,0 +1,28 @@
+package Chapter03.List04;
+
+public class YearFilter implements ColumnFilter {
+    private final int year;
+
+    public YearFilter(final int year) {
+        this.year = year;
+    }
+
+    public int getYear() {
+        return year;
+    }
+
+    @Override
+    public boolean test(final BankTransaction bankTransaction) {
+        return bankTransaction.getDate().getYear() == year;
+    }
+
+    @Override
+    public TransactionView.RowPredicate bind(final TransactionStore store) {
+        return row -> EpochDays.year(store.epochDay(row)) == year;
+    }
+
+    @Override
+    public double estimateSelectivity(final TransactionStatistics statistics) {
+        return statistics.dateRangeSelectivity(EpochDays.of(year, 1, 1), EpochDays.of(year, 12, 31));
+    }
+}
@@ -0,0 +1,135 @@
+package Chapter03.List04;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.time.LocalDate;
+import java.time.Month;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class BankStatementCSVParserTest {
+    private final BankStatementParser statementParser = new BankStatementCSVParser();
+
+    @Test
+    public void shouldParseOneCorrectLine() throws Exception {
+        final String line = "30-01-2017,-50,Tesco";
+        final BankTransaction result = statementParser.parseFrom(line);
+        final BankTransaction expected = new BankTransaction(
+                LocalDate.of(2017, Month.JANUARY, 30),
+                -50, "Tesco");
+        Assert.assertEquals(expected, result);
+    }
+
+    @Test
+    public void shouldStreamTransactionsFromReader() {
+        final String statement = "30-01-2017,-50,Tesco\n01-02-2017,6000,Salary\n";
+        try (Stream<BankTransaction> stream = statementParser.streamFrom(new StringReader(statement))) {
+            final List<BankTransaction> result = stream.collect(Collectors.toList());
+            Assert.assertEquals(2, result.size());
+            Assert.assertEquals(new BankTransaction(LocalDate.of(2017, Month.FEBRUARY, 1), 6000, "Salary"),
+                    result.get(1));
+        }
+    }
+
+    @Test
+    public void shouldParseQuotedDescriptionContainingCommas() {
+        final BankTransaction result = statementParser.parseFrom("05-02-2017,-30.5,\"Cinema, \"\"Odeon\"\"\"");
+        Assert.assertEquals(-30.5, result.getAmount(), 0.0d);
+        Assert.assertEquals("Cinema, \"Odeon\"", result.getDescription());
+    }
+
+    @Test
+    public void shouldTokenizeFieldOffsets() {
+        final CSVTokenizer tokenizer = new CSVTokenizer();
+        final String line = "a,\"b,c\",,d";
+        Assert.assertEquals(4, tokenizer.tokenize(line));
+        Assert.assertEquals("b,c", tokenizer.field(line, 1));
+        Assert.assertEquals(tokenizer.start(2), tokenizer.end(2));
+        Assert.assertEquals("d", tokenizer.field(line, 3));
+    }
+
+    @Test
+    public void shouldParseAmountsIntoMinorUnits() {
+        Assert.assertEquals(-5025, BankStatementCSVParser.parseMinorUnits("-50.25", 0, 6));
+        Assert.assertEquals(5020, BankStatementCSVParser.parseMinorUnits("50.2", 0, 4));
+        Assert.assertEquals(100, BankStatementCSVParser.parseMinorUnits("1", 0, 1));
+        Assert.assertEquals(1234, BankStatementCSVParser.parseMinorUnits("12.345", 0, 6));
+        Assert.assertEquals(150000, BankStatementCSVParser.parseMinorUnits("1.5e3", 0, 5));
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void shouldRejectMalformedAmount() {
+        statementParser.parseFrom("30-01-2017,12a,Tesco");
+    }
+
+    @Test
+    public void shouldSkipAndReportInvalidRowsWhenValidating() throws Exception {
+        final String statement = "30-01-2017,-50,Tesco\n"
+                + "31-02-2017,-10,Cinema\n"
+                + "01-02-2017,6000\n"
+                + "02-02-2017,1e99999,Lottery\n"
+                + "03-02-2017,-20.5,Deliveroo\n";
+        final Notification notification = new Notification(2);
+
+        final TransactionStore store = new BankStatementCSVParser()
+                .parseValidated(new StringReader(statement), notification);
+
+        Assert.assertEquals(2, store.size());
+        Assert.assertEquals(-7050, store.amount(0) + store.amount(1));
+        Assert.assertEquals(3, notification.errorCount());
+        Assert.assertTrue(notification.isTruncated());
+        Assert.assertEquals("Line 2: invalid date '31-02-2017'", notification.getErrors().get(0));
+        Assert.assertEquals("Line 3: expected 3 columns but got 2", notification.getErrors().get(1));
+    }
+
+    @Test
+    public void shouldNotFormatErrorsBeyondTheCap() throws Exception {
+        final StringBuilder statement = new StringBuilder();
+        for (int i = 0; i < 1_000; i++) {
+            statement.append(i % 3 == 0 ? "31-02-2017,-10,Cinema\n" : i % 3 == 1 ? "01-02-2017,x,Tesco\n" : "bad\n");
+        }
+        final int[] messages = new int[1];
+        final Notification notification = new Notification(5) {
+            @Override
+            public void addError(final String error) {
+                messages[0]++;
+                super.addError(error);
+            }
+        };
+
+        new BankStatementCSVParser().parseValidated(new StringReader(statement.toString()), notification);
+
+        Assert.assertEquals(5, messages[0]);
+        Assert.assertEquals(1_000, notification.errorCount());
+    }
+
+    @Test
+    public void shouldReturnInvalidAmountInsteadOfThrowing() {
+        Assert.assertEquals(BankStatementCSVParser.INVALID_AMOUNT, BankStatementCSVParser.tryParseMinorUnits("-", 0, 1));
+        Assert.assertEquals(BankStatementCSVParser.INVALID_AMOUNT, BankStatementCSVParser.tryParseMinorUnits("1.2.3", 0, 5));
+        Assert.assertEquals(BankStatementCSVParser.INVALID_AMOUNT,
+                BankStatementCSVParser.tryParseMinorUnits("99999999999999999999", 0, 20));
+        Assert.assertEquals(-150, BankStatementCSVParser.tryParseMinorUnits(" -1.5 ", 0, 6));
+    }
+
+    @Test(timeout = 5_000)
+    public void shouldHandleHugeExponentsWithoutExpandingThem() throws Exception {
+        Assert.assertEquals(0, BankStatementCSVParser.tryParseMinorUnits("1e-999999999", 0, 12));
+        Assert.assertEquals(0, BankStatementCSVParser.tryParseMinorUnits("-1e-9999999", 0, 11));
+        Assert.assertEquals(0, BankStatementCSVParser.tryParseMinorUnits("0e-999999999", 0, 12));
+        Assert.assertEquals(BankStatementCSVParser.INVALID_AMOUNT,
+                BankStatementCSVParser.tryParseMinorUnits("1e999999999", 0, 11));
+        Assert.assertEquals(BankStatementCSVParser.INVALID_AMOUNT,
+                BankStatementCSVParser.tryParseMinorUnits("-1e9999999", 0, 10));
+
+        final Notification notification = new Notification();
+        final TransactionStore store = new BankStatementCSVParser().parseValidated(new StringReader(
+                "30-01-2017,1e-999999999,Tiny\n30-01-2017,1e999999999,Huge\n"), notification);
+        Assert.assertEquals(1, store.size());
+        Assert.assertEquals(0, store.amount(0));
+        Assert.assertEquals(1, notification.errorCount());
+    }
+}
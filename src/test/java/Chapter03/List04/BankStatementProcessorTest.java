@@ -0,0 +1,287 @@
+package Chapter03.List04;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.time.LocalDate;
+import java.time.Month;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+public class BankStatementProcessorTest {
+    private static final String STATEMENT = String.join("\n",
+            "30-01-2017,-100,Deliveroo",
+            "30-01-2017,-50,Tesco",
+            "01-02-2017,6000,Salary",
+            "02-02-2017,2000,Royalties",
+            "02-02-2017,-4000,Rent",
+            "03-02-2017,3000,Tesco",
+            "05-02-2017,-30,Cinema");
+
+    private final BankStatementParser statementParser = new BankStatementCSVParser();
+
+    private final List<BankTransaction> bankTransactions = Arrays.asList(
+            new BankTransaction(LocalDate.of(2017, Month.JANUARY, 30), -100, "Deliveroo"),
+            new BankTransaction(LocalDate.of(2017, Month.JANUARY, 30), -50, "Tesco"),
+            new BankTransaction(LocalDate.of(2017, Month.FEBRUARY, 1), 6000, "Salary"),
+            new BankTransaction(LocalDate.of(2017, Month.FEBRUARY, 2), 2000, "Royalties"),
+            new BankTransaction(LocalDate.of(2017, Month.FEBRUARY, 2), -4000, "Rent"),
+            new BankTransaction(LocalDate.of(2017, Month.FEBRUARY, 3), 3000, "Tesco"),
+            new BankTransaction(LocalDate.of(2017, Month.FEBRUARY, 5), -30, "Cinema"));
+
+    private final BankStatementProcessor bankStatementProcessor = new BankStatementProcessor(bankTransactions);
+
+    @Test
+    public void shouldCalculateTotals() {
+        Assert.assertEquals(6820, bankStatementProcessor.calculateTotalAmount(), 0.0d);
+        Assert.assertEquals(-150, bankStatementProcessor.calculateTotalInMonth(Month.JANUARY), 0.0d);
+        Assert.assertEquals(6970, bankStatementProcessor.calculateTotalInMonth(Month.FEBRUARY), 0.0d);
+        Assert.assertEquals(2950, bankStatementProcessor.calculateTotalForCategory("tesco"), 0.0d);
+    }
+
+    @Test
+    public void shouldFindTransactions() {
+        final List<BankTransaction> result = bankStatementProcessor.findTransactions(bankTransaction ->
+                bankTransaction.getAmount() >= 1_000);
+        Assert.assertEquals(3, result.size());
+    }
+
+    @Test
+    public void shouldLoadStreamedStatementIntoStore() {
+        final BankStatementProcessor loadedProcessor = new BankStatementProcessor(() ->
+                statementParser.streamFrom(new StringReader(STATEMENT)));
+        Assert.assertEquals(6820, loadedProcessor.calculateTotalAmount(), 0.0d);
+        Assert.assertEquals(2950, loadedProcessor.calculateTotalForCategory("Tesco"), 0.0d);
+    }
+
+    @Test
+    public void shouldSummarizeStreamedStatementWithoutLoadingIt() {
+        final long[] totals = BankStatementProcessor.summarizeStream(
+                () -> statementParser.streamFrom(new StringReader(STATEMENT)),
+                (accumulator, bankTransaction) -> accumulator + bankTransaction.getAmountInMinorUnits(),
+                (accumulator, bankTransaction) -> accumulator + 1);
+        Assert.assertArrayEquals(new long[]{682_000, 7}, totals);
+    }
+
+    @Test
+    public void shouldSumAmountsExactly() {
+        final List<BankTransaction> smallPayments = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            smallPayments.add(new BankTransaction(LocalDate.of(2017, Month.MARCH, 1), 0.1, "Coffee"));
+        }
+        final BankStatementProcessor processor = new BankStatementProcessor(smallPayments);
+        Assert.assertEquals(10_000, processor.calculateTotalAmountInMinorUnits());
+        Assert.assertEquals(100.0, processor.calculateTotalAmount(), 0.0d);
+    }
+
+    @Test
+    public void shouldRunSeveralSummarizersInOnePass() {
+        final long[] totals = bankStatementProcessor.summarizeTransactionsInMinorUnits(
+                (accumulator, bankTransaction) -> accumulator + bankTransaction.getAmountInMinorUnits(),
+                (accumulator, bankTransaction) -> accumulator + 1,
+                (accumulator, bankTransaction) -> Math.max(accumulator, bankTransaction.getAmountInMinorUnits()));
+        Assert.assertArrayEquals(new long[]{682_000, 7, 600_000}, totals);
+    }
+
+    @Test
+    public void shouldSumSeveralColumnValuesInOnePass() {
+        final long[] totals = bankStatementProcessor.sumInMinorUnits(
+                RowValue.AMOUNT,
+                RowValue.amountInMonth(Month.JANUARY),
+                RowValue.amountInMonth(Month.FEBRUARY),
+                RowValue.amountForCategory("tesco"),
+                RowValue.amountForCategory("Unknown"));
+        Assert.assertArrayEquals(new long[]{682_000, -15_000, 697_000, 295_000, 0}, totals);
+    }
+
+    @Test
+    public void shouldSummarizeLargeStatementInParallel() {
+        final TransactionStore store = new TransactionStore();
+        long expected = 0;
+        for (int i = 0; i < 3 * BankStatementProcessor.PARALLEL_THRESHOLD; i++) {
+            final long amount = (i % 201) - 100;
+            store.add(17_000 + i % 400, amount, i % 3 == 0 ? "Tesco" : "Rent");
+            expected += i % 3 == 0 ? amount : 0;
+        }
+        final BankStatementProcessor processor = new BankStatementProcessor(store);
+
+        final long[] total = processor.summarizeTransactionsInParallel(
+                MergeableBankTransactionSummarizer.summingMinorUnits((accumulator, bankTransaction) ->
+                        bankTransaction.getDescription().equals("Tesco") ?
+                                accumulator + bankTransaction.getAmountInMinorUnits() : accumulator),
+                new ForkJoinPool(4));
+        Assert.assertEquals(expected, total[0]);
+        Assert.assertEquals(expected, processor.calculateTotalForCategoryInMinorUnits("tesco"));
+    }
+
+    @Test
+    public void shouldAnswerFromRollupsLikeScans() {
+        final List<BankTransaction> history = new ArrayList<>(bankTransactions);
+        history.add(new BankTransaction(LocalDate.of(2018, Month.JANUARY, 3), -20, "TESCO"));
+        history.add(new BankTransaction(LocalDate.of(2016, Month.FEBRUARY, 29), 45.5, "Tesco"));
+        final TransactionStore store = TransactionStore.of(history);
+        final BankStatementProcessor scanning = new BankStatementProcessor(store);
+        final BankStatementProcessor rollups = new BankStatementProcessor(store, true);
+
+        for (final Month month : Month.values()) {
+            Assert.assertEquals(scanning.calculateTotalInMonthInMinorUnits(month),
+                    rollups.calculateTotalInMonthInMinorUnits(month));
+        }
+        final YearMonth february2017 = YearMonth.of(2017, Month.FEBRUARY);
+        Assert.assertEquals(scanning.calculateTotalAmountInMinorUnits(), rollups.calculateTotalAmountInMinorUnits());
+        Assert.assertEquals(297_550, rollups.calculateTotalForCategoryInMinorUnits("tesco"));
+        Assert.assertEquals(scanning.calculateTotalForCategoryInMinorUnits("tesco"),
+                rollups.calculateTotalForCategoryInMinorUnits("tesco"));
+        Assert.assertEquals(300_000, rollups.calculateTotalForCategoryInMonthInMinorUnits("tesco", february2017));
+        Assert.assertEquals(scanning.calculateTotalForCategoryInMonthInMinorUnits("tesco", february2017),
+                rollups.calculateTotalForCategoryInMonthInMinorUnits("tesco", february2017));
+        Assert.assertEquals(5, rollups.countTransactionsInMonth(february2017));
+        Assert.assertEquals(scanning.countTransactionsInMonth(february2017),
+                rollups.countTransactionsInMonth(february2017));
+        Assert.assertEquals(4, rollups.countTransactionsForCategory("Tesco"));
+        final int tesco = store.descriptions().findCategory("tesco");
+        Assert.assertEquals(1, RollupIndex.of(store).countForCategoryInMonth(tesco, february2017));
+    }
+
+    @Test
+    public void shouldAnswerAmountRangesFromIndex() {
+        Assert.assertEquals(3, bankStatementProcessor.findTransactionsGreaterThanEqual(1_000).size());
+        Assert.assertEquals(bankStatementProcessor.findTransactions(bankTransaction ->
+                        bankTransaction.getAmount() >= -100 && bankTransaction.getAmount() <= 2000),
+                bankStatementProcessor.findTransactions(AmountRangeFilter.between(-10_000, 200_000)));
+        Assert.assertEquals(4, bankStatementProcessor.countTransactions(AmountRangeFilter.atMost(-3_000)));
+        Assert.assertEquals(0, bankStatementProcessor.countTransactionsInAmountRange(1, 0));
+    }
+
+    @Test
+    public void shouldSliceDateRangesInAnyRowOrder() {
+        final List<BankTransaction> shuffled = new ArrayList<>(bankTransactions);
+        shuffled.add(new BankTransaction(LocalDate.of(2016, Month.FEBRUARY, 10), -75, "Tesco"));
+        Collections.reverse(shuffled);
+        final BankStatementProcessor processor = new BankStatementProcessor(shuffled);
+
+        Assert.assertEquals(6895, processor.calculateTotalInMonth(Month.FEBRUARY), 0.0d);
+        Assert.assertEquals(6970, processor.calculateTotalInMonth(YearMonth.of(2017, Month.FEBRUARY)), 0.0d);
+        Assert.assertEquals(5, processor.findTransactionsInMonth(YearMonth.of(2017, Month.FEBRUARY)).size());
+        Assert.assertEquals(3, processor.findTransactionsBetween(
+                LocalDate.of(2017, Month.JANUARY, 30), LocalDate.of(2017, Month.FEBRUARY, 1)).size());
+        Assert.assertEquals(-4000 + 2000, processor.calculateTotalBetween(
+                LocalDate.of(2017, Month.FEBRUARY, 2), LocalDate.of(2017, Month.FEBRUARY, 2)), 0.0d);
+        Assert.assertEquals(2, processor.countTransactionsInMonth(YearMonth.of(2017, Month.JANUARY)));
+    }
+
+    @Test
+    public void shouldChainLazyViewsWithoutCopying() {
+        final TransactionView debits = bankStatementProcessor.selectTransactions(bankTransaction ->
+                bankTransaction.getAmount() < 0);
+        Assert.assertEquals(4, debits.count());
+        Assert.assertEquals("Deliveroo", debits.first().get().getDescription());
+        Assert.assertEquals(-418_000, debits.totalInMinorUnits());
+
+        final TransactionView february = debits.filter(bankTransaction ->
+                bankTransaction.getDate().getMonth() == Month.FEBRUARY);
+        Assert.assertEquals(2, february.count());
+        Assert.assertEquals(1, february.limit(1).toList().size());
+        Assert.assertEquals(-30, february.stream().mapToDouble(BankTransaction::getAmount).max().getAsDouble(), 0.0d);
+        Assert.assertEquals(7, bankStatementProcessor.transactions().limit(10).count());
+    }
+
+    @Test
+    public void shouldKeepAggregatesAndIndexesInStepWithAppends() {
+        final BankStatementProcessor incremental =
+                new BankStatementProcessor(TransactionStore.of(bankTransactions.subList(0, 4)), true);
+        // build every index before appending so that they all have to be maintained
+        incremental.countTransactions(new MonthFilter(Month.JANUARY));
+        incremental.countTransactionsInAmountRange(0, Long.MAX_VALUE);
+        incremental.calculateTotalBetween(LocalDate.of(2017, Month.JANUARY, 1), LocalDate.of(2017, Month.DECEMBER, 31));
+
+        incremental.append(bankTransactions.subList(4, 7));
+        incremental.append(Collections.singletonList(
+                new BankTransaction(LocalDate.of(2017, Month.JANUARY, 2), -10, "Tesco")));
+
+        final List<BankTransaction> all = new ArrayList<>(bankTransactions);
+        all.add(new BankTransaction(LocalDate.of(2017, Month.JANUARY, 2), -10, "Tesco"));
+        final BankStatementProcessor rebuilt = new BankStatementProcessor(all);
+
+        Assert.assertEquals(rebuilt.calculateTotalAmount(), incremental.calculateTotalAmount(), 0.0d);
+        Assert.assertEquals(rebuilt.calculateTotalInMonth(Month.JANUARY), incremental.calculateTotalInMonth(Month.JANUARY), 0.0d);
+        Assert.assertEquals(rebuilt.calculateTotalForCategory("tesco"), incremental.calculateTotalForCategory("tesco"), 0.0d);
+        Assert.assertEquals(rebuilt.countTransactions(new MonthFilter(Month.JANUARY).and(new CategoryFilter("Tesco"))),
+                incremental.countTransactions(new MonthFilter(Month.JANUARY).and(new CategoryFilter("Tesco"))));
+        Assert.assertEquals(rebuilt.findTransactionsInAmountRange(-1_000, 0),
+                incremental.findTransactionsInAmountRange(-1_000, 0));
+        Assert.assertEquals(3, incremental.findTransactionsBetween(
+                LocalDate.of(2017, Month.JANUARY, 1), LocalDate.of(2017, Month.JANUARY, 31)).size());
+    }
+
+    @Test
+    public void shouldKeepExistingViewsStableAcrossAppends() {
+        final BankStatementProcessor processor = new BankStatementProcessor(TransactionStore.of(bankTransactions));
+        final TransactionView january = processor.selectTransactions(new MonthFilter(Month.JANUARY));
+        final TransactionView februaryInOrder = processor.selectTransactionsBetween(
+                LocalDate.of(2017, Month.FEBRUARY, 1), LocalDate.of(2017, Month.FEBRUARY, 28));
+
+        // out of date order, so the date index turns into a permutation and is then reshuffled
+        processor.append(Collections.singletonList(
+                new BankTransaction(LocalDate.of(2016, Month.DECEMBER, 30), -20, "Cinema")));
+        final TransactionView februaryPermuted = processor.selectTransactionsBetween(
+                LocalDate.of(2017, Month.FEBRUARY, 1), LocalDate.of(2017, Month.FEBRUARY, 28));
+        processor.append(Arrays.asList(
+                new BankTransaction(LocalDate.of(2016, Month.DECEMBER, 31), -40, "Tesco"),
+                new BankTransaction(LocalDate.of(2017, Month.JANUARY, 31), -60, "Deliveroo")));
+
+        Assert.assertEquals(2, january.count());
+        Assert.assertEquals(bankTransactions.subList(0, 2), january.toList());
+        Assert.assertEquals(bankTransactions.subList(2, 7), februaryInOrder.toList());
+        Assert.assertEquals(bankTransactions.subList(2, 7), februaryPermuted.toList());
+        Assert.assertEquals(5, februaryPermuted.count());
+        Assert.assertEquals(3, processor.selectTransactions(new MonthFilter(Month.JANUARY)).count());
+    }
+
+    @Test
+    public void shouldGroupTotalsInOnePass() {
+        final GroupedTotals byMonth = bankStatementProcessor.groupBy(GroupKey.month());
+        Assert.assertEquals(2, byMonth.size());
+        Assert.assertEquals("2017-01", byMonth.label(0));
+        Assert.assertEquals(-150, byMonth.sum(0), 0.0d);
+        Assert.assertEquals(5, byMonth.count(1));
+
+        final GroupedTotals byDescription = bankStatementProcessor.groupBy(GroupKey.description());
+        Assert.assertEquals(2950, byDescription.sum(byDescription.indexOfLabel("Tesco")), 0.0d);
+
+        final GroupedTotals byWeekday = bankStatementProcessor.groupBy(GroupKey.weekday());
+        Assert.assertEquals("MONDAY", byWeekday.label(0));
+        Assert.assertEquals(2, byWeekday.count(0));
+
+        final GroupedTotals byBucket = bankStatementProcessor.groupBy(GroupKey.amountBucket(100_000));
+        final int smallDebits = byBucket.indexOf(-100_000);
+        Assert.assertEquals(3, byBucket.count(smallDebits));
+        Assert.assertEquals(-60, byBucket.average(smallDebits), 0.0d);
+
+        final GroupedTotals spendByMonth = bankStatementProcessor.groupBy(GroupKey.month(), RowValue.DEBITS);
+        Assert.assertEquals(-4030, spendByMonth.sum(1), 0.0d);
+    }
+
+    @Test
+    public void shouldBuildDailyRunningBalanceAndRollingSpend() {
+        final DailyTimeSeries series = bankStatementProcessor.dailyTimeSeries();
+        Assert.assertEquals(LocalDate.of(2017, Month.JANUARY, 30), series.firstDay());
+        Assert.assertEquals(7, series.days());
+        Assert.assertEquals(2, series.counts()[series.indexOf(LocalDate.of(2017, Month.FEBRUARY, 2))]);
+
+        final long[] balance = series.runningBalance(100_000);
+        Assert.assertEquals(100_000 - 15_000, balance[0]);
+        Assert.assertEquals(100_000 + 682_000, balance[6]);
+
+        final long[] weeklySpend = series.rollingDebits(7);
+        final long[] threeDaySpend = series.rollingDebits(3);
+        Assert.assertEquals(-418_000, weeklySpend[6]);
+        Assert.assertEquals(-3_000, threeDaySpend[6]);
+        Assert.assertEquals(-400_000, threeDaySpend[4]);
+    }
+}
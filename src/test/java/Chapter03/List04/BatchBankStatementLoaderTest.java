@@ -0,0 +1,44 @@
+package Chapter03.List04;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.Map;
+
+public class BatchBankStatementLoaderTest {
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private void write(final String name, final String... lines) throws Exception {
+        Files.write(folder.getRoot().toPath().resolve(name), Arrays.asList(lines));
+    }
+
+    @Test
+    public void shouldLoadFilesConcurrentlyAndReportFailures() throws Exception {
+        write("alice.csv", "30-01-2017,-100,Deliveroo", "01-02-2017,6000,Salary");
+        write("bob.csv", "02-02-2017,-50,Tesco");
+        write("broken.csv", "2017-02-31,-50,Tesco");
+        write("notes.txt", "not a statement");
+
+        final StatementBatch batch = new BatchBankStatementLoader(new BankStatementCSVParser(), 2)
+                .load(folder.getRoot().toPath());
+
+        Assert.assertEquals(2, batch.getStatements().size());
+        Assert.assertEquals(3, batch.transactionCount());
+        Assert.assertTrue(batch.hasErrors());
+        final Map.Entry<Path, Exception> error = batch.getErrors().entrySet().iterator().next();
+        Assert.assertEquals("broken.csv", error.getKey().getFileName().toString());
+        Assert.assertTrue(error.getValue() instanceof DateTimeParseException);
+
+        Assert.assertEquals(5850, batch.merged().calculateTotalAmount(), 0.0d);
+        final Map<String, BankStatementProcessor> accounts = batch.byAccount();
+        Assert.assertEquals(5900, accounts.get("alice").calculateTotalAmount(), 0.0d);
+        Assert.assertEquals(-50, accounts.get("bob").calculateTotalAmount(), 0.0d);
+    }
+}
@@ -0,0 +1,117 @@
+package Chapter03.List04;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipException;
+
+public class CompressedInputTest {
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private static byte[] gzip(final byte[] content, final boolean stored) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes) {
+            {
+                def.setLevel(stored ? Deflater.NO_COMPRESSION : Deflater.DEFAULT_COMPRESSION);
+            }
+        }) {
+            out.write(content);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static byte[] readAll(final InputStream inputStream) throws IOException {
+        try (InputStream in = inputStream) {
+            return in.readAllBytes();
+        }
+    }
+
+    // Six members, one of them stored with a valid-looking gzip header in its data;
+    // returns the decompressed content
+    private static byte[] writeArchive(final Path archive) throws IOException {
+        final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        try (OutputStream out = Files.newOutputStream(archive)) {
+            for (int member = 0; member < 6; member++) {
+                final StringBuilder content = new StringBuilder();
+                for (int i = 0; i < 5_000; i++) {
+                    content.append("0").append(1 + i % 9).append("-01-2017,-").append(member * 10_000 + i)
+                            .append(",Shop ").append(i % 17).append('\n');
+                }
+                byte[] bytes = content.toString().getBytes(StandardCharsets.UTF_8);
+                if (member == 3) {
+                    // An uncompressed member whose data contains a valid-looking gzip header
+                    bytes = new byte[]{0x1f, (byte) 0x8b, 8, 0, 0, 0, 0, 0, 0, (byte) 0xff, 'x', '\n'};
+                }
+                expected.write(bytes);
+                out.write(gzip(bytes, member == 3));
+            }
+        }
+        return expected.toByteArray();
+    }
+
+    @Test
+    public void shouldDecodeMembersInParallelAndSkipFalseHeaders() throws Exception {
+        final Path archive = folder.getRoot().toPath().resolve("statement.csv.gz");
+        final byte[] expected = writeArchive(archive);
+
+        final byte[] decoded = readAll(ParallelGzipInputStream.open(archive, new ForkJoinPool(3), 0));
+
+        Assert.assertArrayEquals(expected, decoded);
+    }
+
+    @Test
+    public void shouldStreamPiecesLargerThanTheOutputLimit() throws Exception {
+        final Path archive = folder.getRoot().toPath().resolve("statement.csv.gz");
+        final byte[] expected = writeArchive(archive);
+
+        // Every member but the stored one decompresses to far more than 4 KB
+        final byte[] decoded = readAll(ParallelGzipInputStream.open(archive, new ForkJoinPool(3), 0, 4096));
+
+        Assert.assertArrayEquals(expected, decoded);
+    }
+
+    @Test(expected = ZipException.class)
+    public void shouldRejectCorruptMember() throws Exception {
+        final Path archive = folder.getRoot().toPath().resolve("corrupt.gz");
+        final byte[] first = gzip("first\n".getBytes(StandardCharsets.UTF_8), false);
+        final byte[] second = gzip("second\n".getBytes(StandardCharsets.UTF_8), false);
+        // Break the CRC of the second member
+        second[second.length - 8] ^= 0xFF;
+        try (OutputStream out = Files.newOutputStream(archive)) {
+            out.write(first);
+            out.write(second);
+        }
+
+        readAll(ParallelGzipInputStream.open(archive, ForkJoinPool.commonPool(), 0));
+    }
+
+    @Test
+    public void shouldParseCompressedStatementTransparently() throws Exception {
+        final Path archive = folder.getRoot().toPath().resolve("statement.csv.gz");
+        Files.write(archive, gzip("30-01-2017,-50,Tesco\n01-02-2017,6000,Salary\n"
+                .getBytes(StandardCharsets.UTF_8), false));
+
+        try (Stream<BankTransaction> stream = new BankStatementCSVParser().streamFrom(archive)) {
+            final List<BankTransaction> result = stream.collect(Collectors.toList());
+            Assert.assertEquals(2, result.size());
+            Assert.assertEquals("Salary", result.get(1).getDescription());
+        }
+        Assert.assertEquals(2, new MappedBankStatementReader(new BankStatementCSVParser()).read(archive).size());
+    }
+}
@@ -0,0 +1,35 @@
+package Chapter03.List04;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+
+public class DateDecoderTest {
+    private final DateDecoder dateDecoder = new DateDecoder();
+
+    @Test
+    public void shouldDecodeFixedLayoutToEpochDay() {
+        for (LocalDate date = LocalDate.of(1899, 12, 1); date.getYear() < 2101; date = date.plusDays(13)) {
+            final String text = date.format(BankStatementCSVParser.DATE_PATTERN);
+            Assert.assertEquals(text, date.toEpochDay(), dateDecoder.decodeEpochDay(text));
+        }
+    }
+
+    @Test
+    public void shouldRejectInvalidDatesWithoutThrowing() {
+        Assert.assertEquals(DateDecoder.INVALID, dateDecoder.decodeEpochDay("29-02-2017"));
+        Assert.assertEquals(DateDecoder.INVALID, dateDecoder.decodeEpochDay("31-04-2017"));
+        Assert.assertEquals(DateDecoder.INVALID, dateDecoder.decodeEpochDay("1-02-2017"));
+        Assert.assertEquals(DateDecoder.INVALID, dateDecoder.decodeEpochDay("aa-02-2017"));
+        Assert.assertEquals(LocalDate.of(2016, 2, 29).toEpochDay(), dateDecoder.decodeEpochDay("29-02-2016"));
+    }
+
+    @Test
+    public void shouldUseFallbackPatternForOtherLayouts() {
+        final DateDecoder isoFallback = new DateDecoder(DateTimeFormatter.ISO_LOCAL_DATE);
+        Assert.assertEquals(LocalDate.of(2017, 1, 30), isoFallback.decode("2017-01-30", 0, 10));
+        Assert.assertNull(isoFallback.decode("30/01/2017", 0, 10));
+    }
+}
@@ -0,0 +1,33 @@
+package Chapter03.List04;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class DescriptionDictionaryTest {
+    private final DescriptionDictionary dictionary = new DescriptionDictionary();
+
+    @Test
+    public void shouldStoreEachDescriptionOnce() {
+        final int tesco = dictionary.idOf("Tesco");
+        for (int i = 0; i < 100; i++) {
+            dictionary.idOf("Merchant " + i);
+        }
+        Assert.assertEquals(tesco, dictionary.idOf("Tesco"));
+        Assert.assertEquals(tesco, dictionary.idOf("30-01-2017,-50,Tesco", 15, 20));
+        Assert.assertEquals(101, dictionary.size());
+        Assert.assertEquals(DescriptionDictionary.NOT_FOUND, dictionary.find("Sainsbury"));
+    }
+
+    @Test
+    public void shouldShareCategoryIgnoringCase() {
+        final int tesco = dictionary.idOf("Tesco");
+        final int upperTesco = dictionary.idOf("TESCO");
+        final int salary = dictionary.idOf("Salary");
+
+        Assert.assertNotEquals(tesco, upperTesco);
+        Assert.assertEquals(dictionary.categoryOf(tesco), dictionary.categoryOf(upperTesco));
+        Assert.assertEquals(dictionary.categoryOf(tesco), dictionary.findCategory("tesco"));
+        Assert.assertNotEquals(dictionary.categoryOf(tesco), dictionary.categoryOf(salary));
+        Assert.assertEquals(DescriptionDictionary.NOT_FOUND, dictionary.findCategory("rent"));
+    }
+}
@@ -0,0 +1,50 @@
+package Chapter03.List04;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Map;
+
+public class DistinctCounterTest {
+    @Test
+    public void shouldEstimateDistinctValuesAcrossMergedChunks() {
+        final DistinctCounter left = new DistinctCounter();
+        final DistinctCounter right = new DistinctCounter();
+        for (int i = 0; i < 100_000; i++) {
+            left.add("merchant-" + i);
+            // Half of the right chunk repeats the left one
+            right.add("merchant-" + (i + 50_000));
+        }
+
+        final long estimate = left.merge(right).estimate();
+
+        Assert.assertEquals(4096, left.sizeInBytes());
+        Assert.assertEquals(150_000, estimate, 150_000 * 0.05);
+    }
+
+    @Test
+    public void shouldUseLinearCountingForSmallCardinalities() {
+        final DistinctCounter counter = new DistinctCounter(14);
+        for (int i = 0; i < 1_000; i++) {
+            counter.add("merchant-" + (i % 40));
+        }
+        Assert.assertEquals(40, counter.estimate(), 2);
+    }
+
+    @Test
+    public void shouldCountDistinctDescriptionsPerMonth() {
+        final TransactionStore store = new TransactionStore();
+        for (int day = 1; day <= 28; day++) {
+            store.add(new BankTransaction(LocalDate.of(2017, 1, day), -10, "Shop " + (day % 7)));
+            store.add(new BankTransaction(LocalDate.of(2017, 2, day), -10, "Shop " + (day % 3)));
+        }
+        final Map<YearMonth, DistinctCounter> byMonth = new BankStatementProcessor(store)
+                .countDistinctDescriptionsByMonth(DistinctCounter.DEFAULT_PRECISION);
+
+        Assert.assertEquals(7, byMonth.get(YearMonth.of(2017, 1)).estimate());
+        Assert.assertEquals(3, byMonth.get(YearMonth.of(2017, 2)).estimate());
+        Assert.assertEquals(7, byMonth.get(YearMonth.of(2017, 1)).merge(byMonth.get(YearMonth.of(2017, 2))).estimate());
+    }
+}
@@ -0,0 +1,20 @@
+package Chapter03.List04;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.LocalDate;
+
+public class EpochDaysTest {
+    @Test
+    public void shouldAgreeWithLocalDate() {
+        for (LocalDate date = LocalDate.of(-401, 1, 1); date.getYear() < 2401; date = date.plusDays(7)) {
+            final int epochDay = (int) date.toEpochDay();
+            Assert.assertEquals(epochDay, EpochDays.of(date.getYear(), date.getMonthValue(), date.getDayOfMonth()));
+            Assert.assertEquals(date.getYear(), EpochDays.year(epochDay));
+            Assert.assertEquals(date.getMonthValue(), EpochDays.month(epochDay));
+            Assert.assertEquals(date.getDayOfMonth(), EpochDays.dayOfMonth(epochDay));
+            Assert.assertEquals(date.getDayOfWeek().getValue(), EpochDays.dayOfWeek(epochDay));
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package Chapter03.List04;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.time.Month;
+import java.time.YearMonth;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class FilterPlannerTest {
+    private final TransactionStore store = new TransactionStore();
+    private final BankStatementProcessor processor;
+
+    public FilterPlannerTest() {
+        final String[] merchants = {"Tesco", "Rent", "Salary", "Cinema", "Deliveroo"};
+        final int firstDay = (int) LocalDate.of(2017, Month.JANUARY, 1).toEpochDay();
+        for (int i = 0; i < 10_000; i++) {
+            store.add(firstDay + i / 10, (i % 2001) - 1000, merchants[i % merchants.length]);
+        }
+        processor = new BankStatementProcessor(store);
+    }
+
+    @Test
+    public void shouldMatchNaiveEvaluationOfCompoundFilters() {
+        final BankTransactionFilter filter = new MonthFilter(Month.MARCH)
+                .and(new CategoryFilter("tesco").or(new CategoryFilter("CINEMA")))
+                .and(AmountRangeFilter.between(-500, 250))
+                .and(BankTransactionFilter.not(bankTransaction -> bankTransaction.getDate().getDayOfMonth() == 3));
+
+        final int expected = processor.transactions().filter(filter::test).count();
+        Assert.assertTrue(expected > 0);
+        Assert.assertEquals(expected, processor.selectTransactions(filter).count());
+    }
+
+    @Test
+    public void shouldAnswerSelectiveDateRangeFromIndexAndRunLambdasLast() {
+        final AtomicInteger lambdaCalls = new AtomicInteger();
+        final BankTransactionFilter filter = DateRangeFilter.inMonth(YearMonth.of(2017, Month.FEBRUARY))
+                .and(bankTransaction -> {
+                    lambdaCalls.incrementAndGet();
+                    return bankTransaction.getAmount() > 0;
+                })
+                .and(new CategoryFilter("Salary"));
+
+        final int expected = processor.transactions().filter(filter::test).count();
+        lambdaCalls.set(0);
+
+        Assert.assertEquals(expected, processor.selectTransactions(filter).count());
+        // the lambda only sees February salary rows, never the whole statement
+        Assert.assertEquals(280 / 5, lambdaCalls.get());
+    }
+
+    @Test
+    public void shouldAnswerLowCardinalityFiltersWithBitmaps() {
+        final BankTransactionFilter filter = new YearFilter(2017)
+                .and(new MonthFilter(Month.JANUARY).or(new MonthFilter(Month.JUNE)))
+                .and(new CategoryFilter("rent").or(new CategoryFilter("tesco")))
+                .and(SignFilter.debits())
+                .and(BankTransactionFilter.not(new CategoryFilter("Tesco").and(new MonthFilter(Month.JUNE))));
+
+        final TransactionView view = processor.selectTransactions(filter);
+        Assert.assertEquals(processor.transactions().filter(filter::test).count(), view.count());
+        Assert.assertEquals(processor.transactions().filter(filter::test).totalInMinorUnits(), view.totalInMinorUnits());
+    }
+
+    @Test
+    public void shouldReturnIndexedDateRangeInStatementOrder() {
+        final TransactionStore shuffled = new TransactionStore();
+        final int firstDay = (int) LocalDate.of(2017, Month.JANUARY, 1).toEpochDay();
+        for (int i = 0; i < 1_000; i++) {
+            shuffled.add(firstDay + (i * 7919) % 365, i, "Shop " + i % 7);
+        }
+        final BankStatementProcessor unordered = new BankStatementProcessor(shuffled);
+        final BankTransactionFilter february = DateRangeFilter.inMonth(YearMonth.of(2017, Month.FEBRUARY));
+
+        Assert.assertEquals(unordered.transactions().filter(february::test).toList(),
+                unordered.findTransactions(february));
+    }
+}
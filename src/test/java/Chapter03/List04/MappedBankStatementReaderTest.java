@@ -0,0 +1,48 @@
+package Chapter03.List04;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class MappedBankStatementReaderTest {
+    private static final String STATEMENT = String.join("\r\n",
+            "30-01-2017,-100,Deliveroo",
+            "30-01-2017,-50,Tesco",
+            "01-02-2017,6000,Salary",
+            "02-02-2017,2000,\"Royalties, book\"",
+            "02-02-2017,-4000,Rent",
+            "03-02-2017,3000,Tesco",
+            "05-02-2017,-30,Cinema") + "\r\n";
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private final BankStatementCSVParser statementParser = new BankStatementCSVParser();
+
+    @Test
+    public void shouldParseChunksInFileOrder() throws Exception {
+        final Path path = folder.newFile("statement.csv").toPath();
+        Files.write(path, STATEMENT.getBytes(StandardCharsets.UTF_8));
+
+        // tiny chunks force several splits, some of them landing mid-line
+        final MappedBankStatementReader reader =
+                new MappedBankStatementReader(statementParser, new ForkJoinPool(4), 16);
+        final List<BankTransaction> result = reader.parse(path);
+
+        final List<BankTransaction> expected;
+        try (Stream<BankTransaction> stream = statementParser.streamFrom(new StringReader(STATEMENT))) {
+            expected = stream.collect(Collectors.toList());
+        }
+        Assert.assertEquals(expected, result);
+    }
+}
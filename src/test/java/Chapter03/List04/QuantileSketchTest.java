@@ -0,0 +1,75 @@
+package Chapter03.List04;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+public class QuantileSketchTest {
+    @Test
+    public void shouldEstimateQuantilesWithinRankErrorAfterMerging() {
+        final int n = 200_000;
+        final List<Long> values = new ArrayList<>();
+        for (long i = 0; i < n; i++) {
+            values.add(i);
+        }
+        Collections.shuffle(values, new Random(7));
+
+        final QuantileSketch[] partitions = new QuantileSketch[4];
+        for (int p = 0; p < partitions.length; p++) {
+            partitions[p] = new QuantileSketch();
+        }
+        for (int i = 0; i < n; i++) {
+            partitions[i % partitions.length].add(values.get(i));
+        }
+        final QuantileSketch sketch = partitions[0].merge(partitions[1]).merge(partitions[2].merge(partitions[3]));
+
+        Assert.assertEquals(n, sketch.count());
+        Assert.assertEquals(0, sketch.min());
+        Assert.assertEquals(n - 1, sketch.max());
+        Assert.assertTrue(sketch.retainedItems() < 1_000);
+        for (final double q : new double[]{0.01, 0.5, 0.95, 0.99}) {
+            Assert.assertEquals(q * n, sketch.quantile(q), 0.02 * n);
+        }
+    }
+
+    @Test(timeout = 5_000)
+    public void shouldMergeSketchWithItself() {
+        final QuantileSketch sketch = new QuantileSketch();
+        for (long i = 0; i < 10_000; i++) {
+            sketch.add(i);
+        }
+
+        sketch.merge(sketch);
+
+        Assert.assertEquals(20_000, sketch.count());
+        Assert.assertEquals(0, sketch.min());
+        Assert.assertEquals(9_999, sketch.max());
+        Assert.assertEquals(5_000, sketch.median(), 200);
+    }
+
+    @Test
+    public void shouldKeepLargestDebitsAcrossPartitions() {
+        final BankStatementProcessor processor = new BankStatementProcessor(List.of(
+                new BankTransaction(LocalDate.of(2017, 1, 3), -50, "Tesco"),
+                new BankTransaction(LocalDate.of(2017, 1, 4), 6000, "Salary"),
+                new BankTransaction(LocalDate.of(2017, 1, 5), -900, "Rent"),
+                new BankTransaction(LocalDate.of(2017, 1, 6), -20, "Coffee"),
+                new BankTransaction(LocalDate.of(2017, 1, 7), -300, "Flights")));
+
+        final TopTransactions top = processor.summarizeTransactionsInParallel(
+                TopTransactions.summarizer(() -> TopTransactions.largestDebits(2)));
+
+        Assert.assertEquals(2, top.size());
+        Assert.assertEquals("Rent", top.toList().get(0).getDescription());
+        Assert.assertEquals("Flights", top.toList().get(1).getDescription());
+
+        final QuantileSketch debits = processor.selectTransactions(SignFilter.debits())
+                .aggregate(QuantileSketch.amounts());
+        Assert.assertEquals(-30000, debits.median());
+    }
+}
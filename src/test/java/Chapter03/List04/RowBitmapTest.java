@@ -0,0 +1,68 @@
+package Chapter03.List04;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.BitSet;
+import java.util.Random;
+
+public class RowBitmapTest {
+    private static final int UNIVERSE = 300_000;
+
+    private final Random random = new Random(42);
+
+    @Test
+    public void shouldMatchBitSetForMixedDensities() {
+        // sparse and dense regions exercise both container kinds
+        final BitSet sparse = randomBits(0.01);
+        final BitSet dense = randomBits(0.6);
+        final RowBitmap sparseBitmap = toBitmap(sparse);
+        final RowBitmap denseBitmap = toBitmap(dense);
+
+        assertSameRows(sparse, sparseBitmap);
+        assertSameRows(dense, denseBitmap);
+
+        final BitSet and = (BitSet) sparse.clone();
+        and.and(dense);
+        assertSameRows(and, sparseBitmap.and(denseBitmap));
+
+        final BitSet or = (BitSet) sparse.clone();
+        or.or(dense);
+        assertSameRows(or, sparseBitmap.or(denseBitmap));
+
+        final BitSet andNot = (BitSet) dense.clone();
+        andNot.andNot(sparse);
+        assertSameRows(andNot, denseBitmap.andNot(sparseBitmap));
+
+        final BitSet full = new BitSet();
+        full.set(0, 70_000);
+        assertSameRows(full, RowBitmap.full(70_000));
+    }
+
+    private BitSet randomBits(final double density) {
+        final BitSet bits = new BitSet(UNIVERSE);
+        for (int row = 0; row < UNIVERSE; row++) {
+            if (random.nextDouble() < density) {
+                bits.set(row);
+            }
+        }
+        return bits;
+    }
+
+    private static RowBitmap toBitmap(final BitSet bits) {
+        final RowBitmap bitmap = new RowBitmap();
+        for (int row = bits.nextSetBit(0); row >= 0; row = bits.nextSetBit(row + 1)) {
+            bitmap.add(row);
+        }
+        return bitmap;
+    }
+
+    private static void assertSameRows(final BitSet expected, final RowBitmap actual) {
+        Assert.assertEquals(expected.cardinality(), actual.cardinality());
+        final TransactionView.RowCursor cursor = actual.cursor();
+        for (int row = expected.nextSetBit(0); row >= 0; row = expected.nextSetBit(row + 1)) {
+            Assert.assertEquals(row, cursor.next());
+        }
+        Assert.assertEquals(TransactionView.RowCursor.END, cursor.next());
+    }
+}
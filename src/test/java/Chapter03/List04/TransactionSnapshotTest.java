@@ -0,0 +1,108 @@
+package Chapter03.List04;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.format.DateTimeFormatter;
+
+public class TransactionSnapshotTest {
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private TransactionStore sampleStore() {
+        final TransactionStore store = new TransactionStore();
+        for (int i = 0; i < 5_000; i++) {
+            store.add(17_000 + i / 7, i * 37L - 90_000, i % 3 == 0 ? "Tesco" : "Caf\u00e9 " + (i % 11));
+        }
+        return store;
+    }
+
+    @Test
+    public void shouldRoundTripStore() throws Exception {
+        final TransactionStore store = sampleStore();
+        final Path snapshot = folder.getRoot().toPath().resolve("statement.snapshot");
+
+        TransactionSnapshot.write(store, snapshot);
+        final TransactionStore loaded = TransactionSnapshot.read(snapshot);
+
+        Assert.assertEquals(store.toList(), loaded.toList());
+        Assert.assertEquals(store.descriptions().size(), loaded.descriptions().size());
+    }
+
+    @Test(expected = IOException.class)
+    public void shouldRejectCorruptedSnapshot() throws Exception {
+        final Path snapshot = folder.getRoot().toPath().resolve("statement.snapshot");
+        TransactionSnapshot.write(sampleStore(), snapshot);
+        try (RandomAccessFile file = new RandomAccessFile(snapshot.toFile(), "rw")) {
+            file.seek(100);
+            file.write(file.read() ^ 0xFF);
+        }
+
+        TransactionSnapshot.read(snapshot);
+    }
+
+    @Test
+    public void shouldRejectSnapshotOfDifferentSource() throws Exception {
+        final Path snapshot = folder.getRoot().toPath().resolve("statement.snapshot");
+        final SnapshotSource source = new SnapshotSource(1_000, 1_600_000_000_000L, "parser");
+        TransactionSnapshot.write(sampleStore(), snapshot, source);
+
+        Assert.assertEquals(5_000, TransactionSnapshot.read(snapshot, source).size());
+        assertStale(snapshot, new SnapshotSource(1_001, 1_600_000_000_000L, "parser"));
+        assertStale(snapshot, new SnapshotSource(1_000, 1_600_000_000_001L, "parser"));
+        assertStale(snapshot, new SnapshotSource(1_000, 1_600_000_000_000L, "other parser"));
+    }
+
+    private static void assertStale(final Path snapshot, final SnapshotSource expected) {
+        try {
+            TransactionSnapshot.read(snapshot, expected);
+            Assert.fail("Expected stale snapshot for " + expected);
+        } catch (IOException e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().startsWith("Stale snapshot"));
+        }
+    }
+
+    @Test
+    public void shouldReparseWhenStatementOrParserChanges() throws Exception {
+        final Path statement = folder.getRoot().toPath().resolve("statement.csv");
+        final Path cache = folder.getRoot().toPath().resolve("cache");
+        final FileTime modified = FileTime.fromMillis(1_600_000_000_000L);
+        Files.write(statement, "30-01-2017,-100,Tesco\n".getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(statement, modified);
+
+        final BankStatementCSVParser parser = new BankStatementCSVParser();
+        Assert.assertEquals(-10_000, BankTransactionAnalyzer.loadStatement(statement, parser, cache).amount(0));
+        Assert.assertTrue(Files.exists(cache.resolve("statement.csv.snapshot")));
+
+        // The timestamp is preserved, as after cp -p, but the size has changed
+        Files.write(statement, "30-01-2017,-2000,Tesco\n".getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(statement, modified);
+        Assert.assertEquals(-200_000, BankTransactionAnalyzer.loadStatement(statement, parser, cache).amount(0));
+
+        // Same size and timestamp; only the parser configuration differs
+        Files.write(statement, "2017/01/30,-3000,Tesco\n".getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(statement, modified);
+        final BankStatementCSVParser fallbackParser =
+                new BankStatementCSVParser(DateTimeFormatter.ofPattern("yyyy/MM/dd"));
+        Assert.assertEquals(-300_000,
+                BankTransactionAnalyzer.loadStatement(statement, fallbackParser, cache).amount(0));
+    }
+
+    @Test
+    public void shouldNotWriteSnapshotsByDefault() throws Exception {
+        final Path statement = folder.getRoot().toPath().resolve("statement.csv");
+        Files.write(statement, "30-01-2017,-100,Tesco\n".getBytes(StandardCharsets.UTF_8));
+
+        BankTransactionAnalyzer.loadStatement(statement, new BankStatementCSVParser(), null);
+
+        Assert.assertEquals(1, folder.getRoot().list().length);
+    }
+}